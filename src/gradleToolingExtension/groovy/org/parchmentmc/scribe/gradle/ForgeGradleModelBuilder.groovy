@@ -48,7 +48,7 @@ class ForgeGradleModelBuilder implements ModelBuilderService {
         if (!(mcVersion instanceof String) || taskOutput == null)
             return null
 
-        return new ForgeGradleModelImpl(mcVersion, task.name, taskOutput, getClientMappings(project, mcVersion))
+        return new ForgeGradleModelImpl(mcVersion, task.name, taskOutput, new ArrayList<File>(task.inputs.files.files), getClientMappings(project, mcVersion))
     }
 
     @Override
@@ -30,12 +30,14 @@ class ForgeGradleModelImpl implements ForgeGradleModel, Serializable {
     final String mcVersion
     final String extractSrgTaskName
     final File extractSrgTaskOutput
+    final List<File> extractSrgTaskInputs
     final File clientMappings
 
-    ForgeGradleModelImpl(String mcVersion, String extractSrgTaskName, File extractSrgTaskOutput, File clientMappings) {
+    ForgeGradleModelImpl(String mcVersion, String extractSrgTaskName, File extractSrgTaskOutput, List<File> extractSrgTaskInputs, File clientMappings) {
         this.mcVersion = mcVersion
         this.extractSrgTaskName = extractSrgTaskName
         this.extractSrgTaskOutput = extractSrgTaskOutput
+        this.extractSrgTaskInputs = extractSrgTaskInputs
         this.clientMappings = clientMappings
     }
 }
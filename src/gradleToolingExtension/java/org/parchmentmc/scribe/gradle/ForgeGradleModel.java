@@ -24,10 +24,12 @@
 package org.parchmentmc.scribe.gradle;
 
 import java.io.File;
+import java.util.List;
 
 public interface ForgeGradleModel {
     String getMcVersion();
     String getExtractSrgTaskName();
     File getExtractSrgTaskOutput();
+    List<File> getExtractSrgTaskInputs();
     File getClientMappings();
 }
@@ -26,59 +26,71 @@ package org.parchmentmc.scribe.hints;
 import com.intellij.codeInsight.completion.CompletionContributor;
 import com.intellij.codeInsight.completion.CompletionParameters;
 import com.intellij.codeInsight.completion.CompletionResultSet;
+import com.intellij.codeInsight.completion.InsertionContext;
 import com.intellij.codeInsight.completion.JavaMethodCallElement;
-import com.intellij.codeInsight.completion.PrioritizedLookupElement;
+import com.intellij.codeInsight.lookup.LookupElement;
+import com.intellij.codeInsight.lookup.LookupElementDecorator;
+import com.intellij.codeInsight.lookup.LookupElementPresentation;
 import com.intellij.psi.PsiMethod;
-import com.intellij.psi.PsiParameter;
-import com.intellij.psi.impl.light.LightMethodBuilder;
-import com.intellij.psi.impl.light.LightParameter;
-import com.intellij.psi.impl.light.LightParameterListBuilder;
 import org.jetbrains.annotations.NotNull;
-import org.parchmentmc.scribe.ParchmentMappings;
-import org.parchmentmc.scribe.util.Desc_index_utilsKt;
+import org.jetbrains.annotations.Nullable;
+import org.parchmentmc.scribe.util.Remap_utilsKt;
 
 public class ParchmentContributor extends CompletionContributor {
     @Override
     public void fillCompletionVariants(@NotNull CompletionParameters parameters, @NotNull CompletionResultSet result) {
         result.runRemainingContributors(parameters, c -> {
             final var element = c.getLookupElement();
-            final var psi = element.getPsiElement();
-            if (psi instanceof PsiMethod method) {
-                final var md = ParchmentMappings.Companion.getInstance(method.getProject())
-                        .getMethodData(method, false, true);
-                if (md == null) {
-                    result.addElement(element);
-                    return;
-                }
+            if (element.getPsiElement() instanceof PsiMethod method) {
+                result.addElement(new ParchmentLookupElement(element, method));
+            } else {
+                result.addElement(element);
+            }
+        });
+    }
+
+    /**
+     * Shows and inserts the method with its Parchment parameter names. The mapping lookup is deferred until the
+     * element is first rendered or inserted, so items which are never shown cost nothing.
+     */
+    private static final class ParchmentLookupElement extends LookupElementDecorator<LookupElement> {
+        private final PsiMethod method;
+        private JavaMethodCallElement remapped;
+        private volatile boolean resolved;
 
-                var params = new LightParameterListBuilder(method.getManager(), method.getLanguage());
-                for (PsiParameter parameter : method.getParameterList().getParameters()) {
-                    final var pd = md.getParameter(Desc_index_utilsKt.getJvmIndex(parameter));
-                    if (pd == null || pd.getName() == null) {
-                        params.addParameter(parameter);
-                    } else {
-                        params.addParameter(new LightParameter(pd.getName(), parameter.getType(), method));
-                    }
-                }
+        private ParchmentLookupElement(LookupElement delegate, PsiMethod method) {
+            super(delegate);
+            this.method = method;
+        }
 
-                var delegate = new JavaMethodCallElement(new LightMethodBuilder(
-                        method.getManager(),
-                        method.getLanguage(),
-                        method.getName(),
-                        params,
-                        method.getModifierList(),
-                        method.getThrowsList(),
-                        method.getTypeParameterList()
-                ).setContainingClass(method.getContainingClass()));
+        @Nullable
+        private JavaMethodCallElement getRemapped() {
+            if (!resolved) {
+                final PsiMethod remappedMethod = Remap_utilsKt.getParchmentRemapped(method);
+                remapped = remappedMethod == null ? null : new JavaMethodCallElement(remappedMethod);
+                resolved = true;
+            }
+            return remapped;
+        }
 
-                if (element instanceof PrioritizedLookupElement<?> p) {
-                    result.addElement(PrioritizedLookupElement.withPriority(delegate, p.getPriority()));
-                } else {
-                    result.addElement(delegate);
-                }
+        @Override
+        public void renderElement(@NotNull LookupElementPresentation presentation) {
+            final var element = getRemapped();
+            if (element == null) {
+                super.renderElement(presentation);
             } else {
-                result.addElement(element);
+                element.renderElement(presentation);
             }
-        });
+        }
+
+        @Override
+        public void handleInsert(@NotNull InsertionContext context) {
+            final var element = getRemapped();
+            if (element == null) {
+                super.handleInsert(context);
+            } else {
+                element.handleInsert(context);
+            }
+        }
     }
 }
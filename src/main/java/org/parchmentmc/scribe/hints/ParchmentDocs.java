@@ -27,47 +27,79 @@ import com.intellij.codeInsight.javadoc.JavaDocInfoGeneratorFactory;
 import com.intellij.model.Pointer;
 import com.intellij.navigation.TargetPresentation;
 import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.util.Key;
 import com.intellij.platform.backend.documentation.DocumentationResult;
 import com.intellij.platform.backend.documentation.DocumentationTarget;
 import com.intellij.platform.backend.documentation.PsiDocumentationTargetProvider;
 import com.intellij.psi.PsiClass;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiField;
+import com.intellij.psi.PsiMember;
 import com.intellij.psi.PsiMethod;
+import com.intellij.psi.PsiNamedElement;
+import com.intellij.psi.util.CachedValue;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import org.parchmentmc.feather.mapping.MappingDataContainer;
 import org.parchmentmc.scribe.ParchmentMappings;
 import org.parchmentmc.scribe.util.Psi_utilsKt;
 
+import java.util.Optional;
+
 public class ParchmentDocs implements PsiDocumentationTargetProvider {
+    private static final Key<CachedValue<Optional<String>>> DOCUMENTATION_KEY = Key.create("SCRIBE_DOCUMENTATION");
+
     @Override
     public @Nullable DocumentationTarget documentationTarget(@NotNull PsiElement element, @Nullable PsiElement originalElement) {
         if (DumbService.isDumb(element.getProject())) return null; // Dumb means we can't resolve stuff
 
-        if (element instanceof PsiMethod method) {
-            final var qualified = method.getContainingClass().getQualifiedName();
-            final var md = ParchmentMappings.Companion.getInstance(element.getProject())
-                    .getMethodData(method, false, qualified.startsWith("net.minecraft") || qualified.startsWith("com.mojang"));
-            if (md == null) return null;
-
-            return new ElementTarget(Psi_utilsKt.copyFromParchment(method, md, true));
-        } else if (element instanceof PsiClass cls) {
-            final var cs = ParchmentMappings.Companion.getInstance(element.getProject())
-                    .getClassData(cls, false);
-            if (cs == null) return null;
-
-            return new ElementTarget(Psi_utilsKt.copyFromParchment(cls, cs));
-        } else if (element instanceof PsiField field) {
-            final var cs = ParchmentMappings.Companion.getInstance(element.getProject())
-                    .getFieldData(field, false);
-            if (cs == null) return null;
+        if (element instanceof PsiMember member && findData(member) != null) {
+            return new ElementTarget(member);
+        }
+        return null;
+    }
 
-            return new ElementTarget(Psi_utilsKt.copyFromParchment(field, cs));
+    @Nullable
+    private static Object findData(PsiMember member) {
+        final var mappings = ParchmentMappings.Companion.getInstance(member.getProject());
+        if (member instanceof PsiMethod method) {
+            return mappings.getMethodData(method, false, true);
+        } else if (member instanceof PsiClass cls) {
+            return mappings.getClassData(cls, false);
+        } else if (member instanceof PsiField field) {
+            return mappings.getFieldData(field, false);
         }
         return null;
     }
 
-    public record ElementTarget(PsiElement element) implements DocumentationTarget {
+    /**
+     * The documentation of the member with its Parchment names and javadoc, cached until the mappings or the file of
+     * the member change.
+     */
+    @Nullable
+    private static String getDocumentation(PsiMember member) {
+        return CachedValuesManager.getCachedValue(member, DOCUMENTATION_KEY, () -> {
+            final Object data = findData(member);
+            final PsiElement copy;
+            if (data instanceof MappingDataContainer.MethodData md) {
+                copy = Psi_utilsKt.copyFromParchment((PsiMethod) member, md, true);
+            } else if (data instanceof MappingDataContainer.ClassData cd) {
+                copy = Psi_utilsKt.copyFromParchment((PsiClass) member, cd);
+            } else if (data instanceof MappingDataContainer.FieldData fd) {
+                copy = Psi_utilsKt.copyFromParchment((PsiField) member, fd);
+            } else {
+                copy = null;
+            }
+
+            final String doc = copy == null ? null : JavaDocInfoGeneratorFactory.getBuilder(member.getProject()).setPsiElement(copy).create().generateDocInfo(null);
+            return CachedValueProvider.Result.create(Optional.ofNullable(doc),
+                    ParchmentMappings.Companion.getInstance(member.getProject()).getModificationTracker(member), member);
+        }).orElse(null);
+    }
+
+    public record ElementTarget(PsiMember member) implements DocumentationTarget {
         @NotNull
         @Override
         public Pointer<? extends DocumentationTarget> createPointer() {
@@ -77,13 +109,18 @@ public class ParchmentDocs implements PsiDocumentationTargetProvider {
         @NotNull
         @Override
         public TargetPresentation computePresentation() {
-            return TargetPresentation.builder(computeDocumentationHint()).presentation();
+            final String doc = computeDocumentationHint();
+            if (doc != null) {
+                return TargetPresentation.builder(doc).presentation();
+            }
+            // Members without mapping data have no documentation, present them by name instead
+            final String name = member instanceof PsiNamedElement named ? named.getName() : null;
+            return TargetPresentation.builder(name == null ? "" : name).presentation();
         }
 
         @Override
         public String computeDocumentationHint() {
-            final var factory = JavaDocInfoGeneratorFactory.getBuilder(element.getProject()).setPsiElement(element).create();
-            return factory.generateDocInfo(null);
+            return getDocumentation(member);
         }
 
         @Override
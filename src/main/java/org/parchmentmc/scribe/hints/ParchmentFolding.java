@@ -23,13 +23,26 @@
 
 package org.parchmentmc.scribe.hints;
 
+import com.intellij.codeInsight.folding.CodeFoldingManager;
 import com.intellij.lang.ASTNode;
 import com.intellij.lang.folding.CustomFoldingBuilder;
 import com.intellij.lang.folding.FoldingDescriptor;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ModalityState;
+import com.intellij.openapi.application.ReadAction;
 import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.editor.EditorFactory;
+import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.project.DumbAware;
+import com.intellij.openapi.project.DumbService;
 import com.intellij.openapi.project.IndexNotReadyException;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.openapi.util.Key;
 import com.intellij.openapi.util.TextRange;
+import com.intellij.openapi.util.UserDataHolderEx;
 import com.intellij.psi.JavaRecursiveElementWalkingVisitor;
 import com.intellij.psi.PsiAnonymousClass;
 import com.intellij.psi.PsiClass;
@@ -45,216 +58,375 @@ import com.intellij.psi.PsiReferenceList;
 import com.intellij.psi.PsiReferenceParameterList;
 import com.intellij.psi.PsiReturnStatement;
 import com.intellij.psi.PsiSuperExpression;
+import com.intellij.util.concurrency.AppExecutorUtil;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.TestOnly;
 import org.parchmentmc.scribe.ParchmentMappings;
 import org.parchmentmc.scribe.settings.ParchmentProjectSettings;
 import org.parchmentmc.scribe.util.Desc_index_utilsKt;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.function.Consumer;
+import java.util.concurrent.TimeUnit;
 
 public class ParchmentFolding extends CustomFoldingBuilder implements DumbAware {
+    private static final Key<FoldModel> FOLD_MODEL_KEY = Key.create("SCRIBE_FOLD_MODEL");
+    // Files shorter than this are folded in one go
+    private static final int VIEWPORT_FOLDING_MIN_LINES = 1500;
+    // Lines above and below the visible area which are folded along with it
+    private static final int VIEWPORT_MARGIN_LINES = 100;
+    private static final long PASS_TIME_BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+    private static final long BACKGROUND_BATCH_BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static long backgroundBatchBudgetNanos = BACKGROUND_BATCH_BUDGET_NANOS;
 
     @Override
     protected void buildLanguageFoldRegions(@NotNull List<FoldingDescriptor> descriptors, @NotNull PsiElement root, @NotNull Document document, boolean quick) {
         if (!(root instanceof PsiJavaFile file)) return;
-        if (!ParchmentProjectSettings.Companion.getInstance(root.getProject()).getFold()) {
+        final ParchmentProjectSettings settings = ParchmentProjectSettings.Companion.getInstance(root.getProject());
+        if (!settings.getFold()) {
             return;
         }
 
-        PsiClass[] classes = file.getClasses();
-        final Consumer<PsiClass> cons = new Consumer<>() {
-            @Override
-            public void accept(PsiClass aClass) {
-                if (aClass.getQualifiedName() == null || (!aClass.getQualifiedName().startsWith("net.minecraft") && !aClass.getQualifiedName().startsWith("com.mojang"))) return;
-
-                for (PsiMethod method : aClass.getMethods()) {
-                    final Map<String, String> parameterMapping = new HashMap<>();
-
-                    method.accept(new JavaRecursiveElementWalkingVisitor() {
-                        @Override
-                        public void visitClass(@NotNull PsiClass aClass) {
-                            aClass.acceptChildren(this);
-                        }
-
-                        @Override
-                        public void visitAnonymousClass(@NotNull PsiAnonymousClass aClass) {
-                            aClass.acceptChildren(this);
-                        }
-
-                        @Override
-                        public void visitReturnStatement(@NotNull PsiReturnStatement statement) {
-                            statement.acceptChildren(this);
-                        }
-
-                        @Override
-                        public void visitReferenceParameterList(@NotNull PsiReferenceParameterList list) {
-                            for (PsiElement child : list.getChildren()) {
-                                child.accept(this);
-                            }
-                        }
-
-                        @Override
-                        public void visitMethod(@NotNull PsiMethod method) {
-                            try {
-                                final var mt = ParchmentMappings.Companion.getInstance(file.getProject())
-                                        .getMethodData(method, false, true);
-                                if (mt != null) {
-                                    mt.getParameters()
-                                            .forEach(par -> parameterMapping.put(Desc_index_utilsKt.getParameterByJvmIndex(method, par.getIndex()).getName(), par.getName()));
-                                }
-                            } catch (IndexNotReadyException ignored) {
-
-                            }
-                            method.acceptChildren(this);
-                        }
-
-                        @Override
-                        public void visitLambdaExpression(@NotNull PsiLambdaExpression expression) {
-                            try {
-                                final var lambda = ParchmentMappings.Companion.getInstance(file.getProject()).getMethodData(expression, false);
-                                if (lambda != null) {
-                                    for (PsiParameter parameter : expression.getParameterList().getParameters()) {
-                                        final var mapped = lambda.getParameter(Desc_index_utilsKt.getJvmIndex(parameter));
-                                        if (mapped != null) {
-                                            parameterMapping.put(parameter.getName(), mapped.getName());
-                                            addToFold(
-                                                    descriptors,
-                                                    parameter,
-                                                    document,
-                                                    true,
-                                                    mapped.getName(),
-                                                    parameter.getNameIdentifier().getTextRange(),
-                                                    true
-                                            );
-                                        }
-                                    }
-                                }
-                            } catch (IndexNotReadyException ignored) {
-
-                            }
-
-                            if (expression.getBody() != null) {
-                                expression.getBody().accept(this);
-                            }
-                        }
-
-                        @Override
-                        public void visitParameter(@NotNull PsiParameter parameter) {
-                            var mapping = parameterMapping.get(parameter.getName());
-                            if (mapping != null) {
-                                addToFold(
-                                        descriptors,
-                                        parameter,
-                                        document,
-                                        true,
-                                        mapping,
-                                        parameter.getNameIdentifier().getTextRange(),
-                                        true
-                                );
-                            }
-                        }
-
-                        @Override
-                        public void visitSuperExpression(@NotNull PsiSuperExpression expression) {
-                            super.visitSuperExpression(expression);
-                        }
-
-                        private PsiElement firstChild(PsiElement other) {
-                            while (other.getFirstChild() != null && !(other.getFirstChild() instanceof PsiReferenceParameterList)) {
-                                other = other.getFirstChild();
-                            }
-                            return other;
-                        }
-
-                        @Override
-                        public void visitMethodCallExpression(@NotNull PsiMethodCallExpression expression) {
-                            PsiElement owner = expression.getMethodExpression().getQualifierExpression();
-                            if (owner != null) {
-                                owner = firstChild(owner);
-                                var mapped = parameterMapping.get(owner.getText());
-                                if (mapped != null) {
-                                    addToFold(
-                                            descriptors,
-                                            expression,
-                                            document,
-                                            true,
-                                            mapped,
-                                            owner.getTextRange(),
-                                            true
-                                    );
-                                }
-                            }
-
-                            for (PsiElement child : expression.getChildren()) {
-                                child.accept(this);
-                            }
-
-                            for (PsiExpression psiExpression : expression.getArgumentList().getExpressions()) {
-                                psiExpression.accept(this);
-                            }
-                        }
-
-                        @Override
-                        public void visitReferenceList(@NotNull PsiReferenceList list) {
-                            for (PsiElement child : list.getChildren()) {
-                                child.accept(this);
-                            }
-                        }
-
-                        @Override
-                        public void visitReferenceExpression(@NotNull PsiReferenceExpression expression) {
-                            var mapped = parameterMapping.get(expression.getReferenceName());
-                            if (mapped != null) {
-                                addToFold(
-                                        descriptors,
-                                        expression,
-                                        document,
-                                        true,
-                                        mapped,
-                                        expression.getAbsoluteRange(),
-                                        true
-                                );
-                            }
-
-                            for (PsiElement child : expression.getChildren()) {
-                                child.accept(this);
-                            }
-                        }
-                    });
+        final long stamp = file.getModificationStamp();
+        final ParchmentMappings mappings = ParchmentMappings.Companion.getInstance(file.getProject());
+        final long generation = mappings.getModificationTracker(file).getModificationCount();
+        FoldModel model = file.getUserData(FOLD_MODEL_KEY);
+        // Quick passes only need the ranges to match the file, mapping changes are picked up by the next full pass
+        if (model == null || model.modificationStamp() != stamp || (!quick && model.generation() != generation)) {
+            final List<PsiMethod> methods = collectMethods(file, mappings);
+            if (!DumbService.isDumb(file.getProject()) && settings.getViewportFolding() && document.getLineCount() >= VIEWPORT_FOLDING_MIN_LINES) {
+                final TextRange viewport = getViewport(document);
+                final List<PsiMethod> ordered = new ArrayList<>(methods.size());
+                final List<PsiMethod> rest = new ArrayList<>();
+                for (PsiMethod method : methods) {
+                    (viewport.intersects(method.getTextRange()) ? ordered : rest).add(method);
                 }
+                final int visible = ordered.size();
+                ordered.addAll(rest);
 
-                for (PsiClass innerClass : aClass.getInnerClasses()) {
-                    accept(innerClass);
+                model = storeModel(file, null, new FoldModel(stamp, generation, List.of(), ordered, true));
+                model = advance(file, model, document, visible, PASS_TIME_BUDGET_NANOS, true);
+                completeInBackground(file, document, model);
+            } else {
+                model = storeModel(file, null, new FoldModel(stamp, generation, List.of(), methods, false));
+            }
+        }
+
+        if (!model.background() && !model.pending().isEmpty()) {
+            model = advance(file, model, document, Integer.MAX_VALUE, PASS_TIME_BUDGET_NANOS, true);
+            if (!model.pending().isEmpty() && !DumbService.isDumb(file.getProject())) {
+                // Out of time, resume from where we stopped on the next pass
+                ApplicationManager.getApplication().invokeLater(() -> updateFolding(file.getProject(), document), file.getProject().getDisposed());
+            }
+        }
+
+        final boolean frozen = settings.getFrozenFolding();
+        for (FoldRegion region : model.regions()) {
+            descriptors.add(new FoldingDescriptor(region.node(), region.range(), null, Collections.emptySet(), frozen, region.placeholder(), true));
+        }
+    }
+
+    /**
+     * Computes the regions of up to {@code limit} pending methods of the model, stopping early once the time budget is
+     * spent or indices become unavailable. At least one method is always computed, so every pass makes progress.
+     * With {@code store} set, the advanced model is saved to the file even if the pass is cancelled, so the next pass
+     * resumes from it; otherwise saving it is left to the caller.
+     */
+    private static FoldModel advance(PsiJavaFile file, FoldModel model, Document document, int limit, long budgetNanos, boolean store) {
+        if (model.pending().isEmpty() || limit <= 0) return model;
+
+        final long deadline = System.nanoTime() + budgetNanos;
+        final ParchmentMappings mappings = ParchmentMappings.Companion.getInstance(file.getProject());
+        final List<FoldRegion> regions = new ArrayList<>(model.regions());
+        final int end = Math.min(limit, model.pending().size());
+        int done = 0;
+        try {
+            while (done < end && (done == 0 || System.nanoTime() < deadline)) {
+                ProgressManager.checkCanceled();
+                final List<FoldRegion> methodRegions = new ArrayList<>();
+                collectMethodRegions(model.pending().get(done), mappings, document, methodRegions);
+                regions.addAll(methodRegions);
+                done++;
+            }
+        } catch (IndexNotReadyException ignored) {
+            // The remaining methods are picked up again once indexing is done
+        } finally {
+            if (done > 0) {
+                final FoldModel next = new FoldModel(model.modificationStamp(), model.generation(), regions,
+                        List.copyOf(model.pending().subList(done, model.pending().size())), model.background());
+                model = store ? storeModel(file, model, next) : next;
+            }
+        }
+        return model;
+    }
+
+    /**
+     * Saves the model to the file if the file still holds {@code expected}. Models computed while indexing are
+     * incomplete, so they are only returned, never saved.
+     */
+    private static FoldModel storeModel(PsiJavaFile file, @Nullable FoldModel expected, FoldModel model) {
+        if (!DumbService.isDumb(file.getProject())) {
+            if (expected == null) {
+                file.putUserData(FOLD_MODEL_KEY, model);
+            } else {
+                ((UserDataHolderEx) file).replace(FOLD_MODEL_KEY, expected, model);
+            }
+        }
+        return model;
+    }
+
+    /**
+     * The last known visible range of the editors showing the document, widened by {@link #VIEWPORT_MARGIN_LINES}.
+     * Before an editor has been laid out, the start of the file is assumed to be visible.
+     */
+    private static TextRange getViewport(Document document) {
+        final TextRange visible = FoldingViewportListener.getVisibleRange(document);
+        final int lastLine = Math.max(document.getLineCount() - 1, 0);
+        final int startLine = visible == null ? 0 : document.getLineNumber(Math.min(visible.getStartOffset(), document.getTextLength()));
+        final int endLine = visible == null ? 0 : document.getLineNumber(Math.min(visible.getEndOffset(), document.getTextLength()));
+        return new TextRange(
+                document.getLineStartOffset(Math.max(startLine - VIEWPORT_MARGIN_LINES, 0)),
+                document.getLineEndOffset(Math.min(endLine + VIEWPORT_MARGIN_LINES, lastLine))
+        );
+    }
+
+    /**
+     * Computes the pending methods of the model in time-boxed batches, publishing each batch to the file and
+     * refreshing the folding of its editors. A batch is only published if the file still holds the model it started
+     * from, so the chain stops as soon as the model is replaced, e.g. by an edit. Cancelled batches are restarted from
+     * the same model.
+     */
+    private static void completeInBackground(PsiJavaFile file, Document document, FoldModel model) {
+        if (model.pending().isEmpty()) return;
+
+        final Project project = file.getProject();
+        ReadAction.nonBlocking(() -> advance(file, model, document, Integer.MAX_VALUE, backgroundBatchBudgetNanos, false))
+                .expireWhen(() -> file.getUserData(FOLD_MODEL_KEY) != model)
+                .inSmartMode(project)
+                .coalesceBy(file, FOLD_MODEL_KEY)
+                .finishOnUiThread(ModalityState.defaultModalityState(), next -> {
+                    if (next == model) {
+                        // Indexing started before anything was computed, try again once it is done
+                        completeInBackground(file, document, model);
+                    } else if (((UserDataHolderEx) file).replace(FOLD_MODEL_KEY, model, next)) {
+                        updateFolding(project, document);
+                        completeInBackground(file, document, next);
+                    }
+                })
+                .submit(AppExecutorUtil.getAppExecutorService());
+    }
+
+    @TestOnly
+    static void setBackgroundBatchBudget(long budgetNanos, Disposable parentDisposable) {
+        backgroundBatchBudgetNanos = budgetNanos;
+        Disposer.register(parentDisposable, () -> backgroundBatchBudgetNanos = BACKGROUND_BATCH_BUDGET_NANOS);
+    }
+
+    private static void updateFolding(Project project, Document document) {
+        for (Editor editor : EditorFactory.getInstance().getEditors(document, project)) {
+            CodeFoldingManager.getInstance(project).scheduleAsyncFoldingUpdate(editor);
+        }
+    }
+
+    private static List<PsiMethod> collectMethods(PsiJavaFile file, ParchmentMappings mappings) {
+        final List<PsiMethod> methods = new ArrayList<>();
+        for (PsiClass aClass : file.getClasses()) {
+            collectMethods(aClass, mappings, methods);
+        }
+        return methods;
+    }
+
+    private static void collectMethods(PsiClass aClass, ParchmentMappings mappings, List<PsiMethod> methods) {
+        // Inner classes may extend mapped classes even if their outer class doesn't
+        if (mappings.mayInheritMappedData(aClass)) {
+            Collections.addAll(methods, aClass.getMethods());
+        }
+
+        for (PsiClass innerClass : aClass.getInnerClasses()) {
+            collectMethods(innerClass, mappings, methods);
+        }
+    }
+
+    private static void collectMethodRegions(PsiMethod method, ParchmentMappings mappings, Document document, List<FoldRegion> regions) {
+        method.accept(new ParameterFoldingVisitor(mappings, document, regions));
+    }
+
+    private static final class ParameterFoldingVisitor extends JavaRecursiveElementWalkingVisitor {
+        private final Map<String, String> parameterMapping = new HashMap<>();
+        private final ParchmentMappings mappings;
+        private final Document document;
+        private final List<FoldRegion> regions;
+
+        private ParameterFoldingVisitor(ParchmentMappings mappings, Document document, List<FoldRegion> regions) {
+            this.mappings = mappings;
+            this.document = document;
+            this.regions = regions;
+        }
+
+        @Override
+        public void visitClass(@NotNull PsiClass aClass) {
+            aClass.acceptChildren(this);
+        }
+
+        @Override
+        public void visitAnonymousClass(@NotNull PsiAnonymousClass aClass) {
+            aClass.acceptChildren(this);
+        }
+
+        @Override
+        public void visitReturnStatement(@NotNull PsiReturnStatement statement) {
+            statement.acceptChildren(this);
+        }
+
+        @Override
+        public void visitReferenceParameterList(@NotNull PsiReferenceParameterList list) {
+            for (PsiElement child : list.getChildren()) {
+                child.accept(this);
+            }
+        }
+
+        @Override
+        public void visitMethod(@NotNull PsiMethod method) {
+            ProgressManager.checkCanceled();
+            final var mt = mappings.getMethodData(method, false, true);
+            if (mt != null) {
+                for (var par : mt.getParameters()) {
+                    final PsiParameter parameter = Desc_index_utilsKt.getParameterByJvmIndex(method, par.getIndex());
+                    if (parameter != null) {
+                        parameterMapping.put(parameter.getName(), par.getName());
+                    }
+                }
+            }
+            method.acceptChildren(this);
+        }
+
+        @Override
+        public void visitLambdaExpression(@NotNull PsiLambdaExpression expression) {
+            ProgressManager.checkCanceled();
+            final var lambda = mappings.getMethodData(expression, false);
+            if (lambda != null) {
+                for (PsiParameter parameter : expression.getParameterList().getParameters()) {
+                    final var mapped = lambda.getParameter(Desc_index_utilsKt.getJvmIndex(parameter));
+                    if (mapped != null) {
+                        parameterMapping.put(parameter.getName(), mapped.getName());
+                        addToFold(
+                                regions,
+                                parameter,
+                                document,
+                                true,
+                                mapped.getName(),
+                                parameter.getNameIdentifier().getTextRange()
+                        );
+                    }
+                }
+            }
+
+            if (expression.getBody() != null) {
+                expression.getBody().accept(this);
+            }
+        }
+
+        @Override
+        public void visitParameter(@NotNull PsiParameter parameter) {
+            var mapping = parameterMapping.get(parameter.getName());
+            if (mapping != null) {
+                addToFold(
+                        regions,
+                        parameter,
+                        document,
+                        true,
+                        mapping,
+                        parameter.getNameIdentifier().getTextRange()
+                );
+            }
+        }
+
+        @Override
+        public void visitSuperExpression(@NotNull PsiSuperExpression expression) {
+            super.visitSuperExpression(expression);
+        }
+
+        private PsiElement firstChild(PsiElement other) {
+            while (other.getFirstChild() != null && !(other.getFirstChild() instanceof PsiReferenceParameterList)) {
+                other = other.getFirstChild();
+            }
+            return other;
+        }
+
+        @Override
+        public void visitMethodCallExpression(@NotNull PsiMethodCallExpression expression) {
+            PsiElement owner = expression.getMethodExpression().getQualifierExpression();
+            if (owner != null) {
+                owner = firstChild(owner);
+                var mapped = parameterMapping.get(owner.getText());
+                if (mapped != null) {
+                    addToFold(
+                            regions,
+                            expression,
+                            document,
+                            true,
+                            mapped,
+                            owner.getTextRange()
+                    );
                 }
             }
-        };
-        for (PsiClass aClass : classes) {
-            cons.accept(aClass);
+
+            for (PsiElement child : expression.getChildren()) {
+                child.accept(this);
+            }
+
+            for (PsiExpression psiExpression : expression.getArgumentList().getExpressions()) {
+                psiExpression.accept(this);
+            }
+        }
+
+        @Override
+        public void visitReferenceList(@NotNull PsiReferenceList list) {
+            for (PsiElement child : list.getChildren()) {
+                child.accept(this);
+            }
+        }
+
+        @Override
+        public void visitReferenceExpression(@NotNull PsiReferenceExpression expression) {
+            var mapped = parameterMapping.get(expression.getReferenceName());
+            if (mapped != null) {
+                addToFold(
+                        regions,
+                        expression,
+                        document,
+                        true,
+                        mapped,
+                        expression.getAbsoluteRange()
+                );
+            }
+
+            for (PsiElement child : expression.getChildren()) {
+                child.accept(this);
+            }
         }
     }
 
-    private static void addToFold(@NotNull List<? super FoldingDescriptor> list,
+    private static void addToFold(@NotNull List<? super FoldRegion> list,
                                   @NotNull PsiElement elementToFold,
                                   @NotNull Document document,
                                   boolean allowOneLiners,
                                   @NotNull String placeholder,
-                                  @Nullable TextRange range,
-                                  boolean isCollapsedByDefault) {
+                                  @Nullable TextRange range) {
         if (range != null) {
-            addFoldRegion(list, elementToFold, document, allowOneLiners, range, placeholder, isCollapsedByDefault);
+            addFoldRegion(list, elementToFold, document, allowOneLiners, range, placeholder);
         }
     }
 
-    private static void addFoldRegion(@NotNull List<? super FoldingDescriptor> list,
+    private static void addFoldRegion(@NotNull List<? super FoldRegion> list,
                                       @NotNull PsiElement elementToFold,
                                       @NotNull Document document,
                                       boolean allowOneLiners,
-                                      @NotNull TextRange range, @NotNull String placeholder, boolean isCollapsedByDefault) {
+                                      @NotNull TextRange range, @NotNull String placeholder) {
         final TextRange fileRange = elementToFold.getContainingFile().getTextRange();
         if (range.equals(fileRange)) return;
 
@@ -265,8 +437,20 @@ public class ParchmentFolding extends CustomFoldingBuilder implements DumbAware
                 return;
             }
         }
-        list.add(new FoldingDescriptor(elementToFold.getNode(), range, null, Collections.emptySet(),
-                ParchmentProjectSettings.Companion.getInstance(elementToFold.getProject()).getFrozenFolding(), placeholder, isCollapsedByDefault));
+        list.add(new FoldRegion(elementToFold.getNode(), range, placeholder));
+    }
+
+    /**
+     * A fold region without the settings-dependent parts of its descriptor.
+     */
+    private record FoldRegion(ASTNode node, TextRange range, String placeholder) {
+    }
+
+    /**
+     * The fold regions of a file, valid while neither the file nor the loaded mappings change. The regions of pending
+     * methods are yet to be computed, either by later passes or, if {@code background} is set, by a background task.
+     */
+    private record FoldModel(long modificationStamp, long generation, List<FoldRegion> regions, List<PsiMethod> pending, boolean background) {
     }
 
     @Override
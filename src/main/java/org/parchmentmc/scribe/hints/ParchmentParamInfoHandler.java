@@ -47,16 +47,11 @@ import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiExpression;
 import com.intellij.psi.PsiExpressionList;
 import com.intellij.psi.PsiMethod;
-import com.intellij.psi.PsiParameter;
-import com.intellij.psi.impl.light.LightMethodBuilder;
-import com.intellij.psi.impl.light.LightParameter;
-import com.intellij.psi.impl.light.LightParameterListBuilder;
 import com.intellij.psi.infos.CandidateInfo;
 import com.intellij.psi.tree.IElementType;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
-import org.parchmentmc.scribe.ParchmentMappings;
-import org.parchmentmc.scribe.util.Desc_index_utilsKt;
+import org.parchmentmc.scribe.util.Remap_utilsKt;
 
 import java.util.Set;
 import java.util.stream.Stream;
@@ -147,39 +142,11 @@ public class ParchmentParamInfoHandler implements ParameterInfoHandlerWithTabAct
     @Override
     public void updateParameterInfo(@NotNull PsiExpressionList psiExpressionList, @NotNull UpdateParameterInfoContext context) {
         yeet();
-        for (int i = 0; i < context.getObjectsToView().length; i++) {
-            final var info = (CandidateInfo) context.getObjectsToView()[i];
-            final var method = (PsiMethod) info.getElement();
-            final var md = ParchmentMappings.Companion.getInstance(method.getProject())
-                    .getMethodData(method, false, true);
-            if (md == null) {
-                continue;
+        final Object[] candidates = context.getObjectsToView();
+        for (int i = 0; i < candidates.length; i++) {
+            if (candidates[i] instanceof CandidateInfo info) {
+                candidates[i] = remap(info);
             }
-
-            var params = new LightParameterListBuilder(method.getManager(), method.getLanguage());
-            for (PsiParameter parameter : method.getParameterList().getParameters()) {
-                final var pd = md.getParameter(Desc_index_utilsKt.getJvmIndex(parameter));
-                if (pd == null || pd.getName() == null) {
-                    params.addParameter(parameter);
-                } else {
-                    params.addParameter(new LightParameter(pd.getName(), parameter.getType(), method));
-                }
-            }
-
-            var newMethod = new LightMethodBuilder(
-                    method.getManager(),
-                    method.getLanguage(),
-                    method.getName(),
-                    params,
-                    method.getModifierList(),
-                    method.getThrowsList(),
-                    method.getTypeParameterList()
-            ).setContainingClass(method.getContainingClass());
-            context.getObjectsToView()[i] = new CandidateInfo(
-                    newMethod, info.getSubstitutor(),
-                    !info.isAccessible(), !info.isStaticsScopeCorrect(),
-                    info.getCurrentFileResolveScope()
-            );
         }
         delegate.updateParameterInfo(psiExpressionList, context);
     }
@@ -189,74 +156,37 @@ public class ParchmentParamInfoHandler implements ParameterInfoHandlerWithTabAct
         yeet();
         if (DumbService.isDumb(context.getParameterOwner().getProject())) {
             delegate.updateUI(p, context);
-            return;
-        }
-
-        if (p instanceof CandidateInfo info) {
-            final var method = (PsiMethod) info.getElement();
-            final var md = ParchmentMappings.Companion.getInstance(method.getProject())
-                    .getMethodData(method, false, true);
-            if (md == null) {
-                delegate.updateUI(p, context);
-                return;
-            }
-
-            var params = new LightParameterListBuilder(method.getManager(), method.getLanguage());
-            for (PsiParameter parameter : method.getParameterList().getParameters()) {
-                final var pd = md.getParameter(Desc_index_utilsKt.getJvmIndex(parameter));
-                if (pd == null || pd.getName() == null) {
-                    params.addParameter(parameter);
-                } else {
-                    params.addParameter(new LightParameter(pd.getName(), parameter.getType(), method));
-                }
-            }
-
-            var newMethod = new LightMethodBuilder(
-                    method.getManager(),
-                    method.getLanguage(),
-                    method.getName(),
-                    params,
-                    method.getModifierList(),
-                    method.getThrowsList(),
-                    method.getTypeParameterList()
-            ).setContainingClass(method.getContainingClass());
-
-            delegate.updateUI(new CandidateInfo(
-                    newMethod, info.getSubstitutor(),
-                    !info.isAccessible(), !info.isStaticsScopeCorrect(),
-                    info.getCurrentFileResolveScope()
-            ), context);
+        } else if (p instanceof CandidateInfo info) {
+            delegate.updateUI(remap(info), context);
         } else if (p instanceof PsiMethod method) {
-            final var md = ParchmentMappings.Companion.getInstance(method.getProject())
-                    .getMethodData(method, false, true);
-            if (md == null) {
-                delegate.updateUI(p, context);
-                return;
-            }
-
-            var params = new LightParameterListBuilder(method.getManager(), method.getLanguage());
-            for (PsiParameter parameter : method.getParameterList().getParameters()) {
-                final var pd = md.getParameter(Desc_index_utilsKt.getJvmIndex(parameter));
-                if (pd == null || pd.getName() == null) {
-                    params.addParameter(parameter);
-                } else {
-                    params.addParameter(new LightParameter(pd.getName(), parameter.getType(), method));
-                }
-            }
+            delegate.updateUI(remap(method), context);
+        } else {
+            delegate.updateUI(p, context);
+        }
+    }
 
-            var newMethod = new LightMethodBuilder(
-                    method.getManager(),
-                    method.getLanguage(),
-                    method.getName(),
-                    params,
-                    method.getModifierList(),
-                    method.getThrowsList(),
-                    method.getTypeParameterList()
-            ).setContainingClass(method.getContainingClass());
+    /**
+     * The cached remapped copy of the method, or the original method if it has no mapping data (anymore).
+     */
+    private static PsiMethod remap(PsiMethod method) {
+        final PsiMethod remapped = Remap_utilsKt.getParchmentRemapped(method);
+        return remapped == null ? Remap_utilsKt.getParchmentOriginal(method) : remapped;
+    }
 
-            delegate.updateUI(newMethod, context);
-        }
-        delegate.updateUI(p, context);
+    /**
+     * Swaps the method of the candidate for its cached remapped copy. Candidates which are already remapped, as they are
+     * after the first update, are returned as is.
+     */
+    private static CandidateInfo remap(CandidateInfo info) {
+        if (!(info.getElement() instanceof PsiMethod method)) return info;
+
+        final PsiMethod remapped = remap(method);
+        if (remapped == method) return info;
+        return new CandidateInfo(
+                remapped, info.getSubstitutor(),
+                !info.isAccessible(), !info.isStaticsScopeCorrect(),
+                info.getCurrentFileResolveScope()
+        );
     }
 
     private void yeet() {
@@ -25,24 +25,56 @@ package org.parchmentmc.scribe
 
 import com.google.common.cache.Cache
 import com.google.common.cache.CacheBuilder
-import com.intellij.codeInsight.hints.InlayHintsPassFactory
+import com.google.common.collect.MapMaker
+import com.intellij.codeInsight.daemon.DaemonCodeAnalyzer
+import com.intellij.codeInsight.folding.CodeFoldingManager
+import com.intellij.codeInsight.hints.declarative.impl.DeclarativeInlayHintsPassFactory
+import com.intellij.openapi.application.ApplicationManager
+import com.intellij.openapi.application.ModalityState
+import com.intellij.openapi.application.ReadAction
 import com.intellij.openapi.components.Service
+import com.intellij.openapi.diagnostic.Logger
+import com.intellij.openapi.editor.EditorFactory
 import com.intellij.openapi.externalSystem.model.DataNode
 import com.intellij.openapi.externalSystem.model.project.ModuleData
+import com.intellij.openapi.fileEditor.FileEditorManager
+import com.intellij.openapi.module.Module
+import com.intellij.openapi.module.ModuleManager
 import com.intellij.openapi.project.Project
+import com.intellij.openapi.roots.JdkOrderEntry
+import com.intellij.openapi.roots.ProjectFileIndex
+import com.intellij.openapi.roots.ProjectRootManager
+import com.intellij.openapi.util.Key
+import com.intellij.openapi.util.ModificationTracker
+import com.intellij.openapi.util.text.StringUtil
+import com.intellij.psi.JavaPsiFacade
+import com.intellij.psi.JavaRecursiveElementWalkingVisitor
 import com.intellij.psi.PsiClass
+import com.intellij.psi.PsiCompiledElement
 import com.intellij.psi.PsiElement
 import com.intellij.psi.PsiField
+import com.intellij.psi.PsiJavaCodeReferenceElement
 import com.intellij.psi.PsiJavaFile
 import com.intellij.psi.PsiLambdaExpression
+import com.intellij.psi.PsiManager
+import com.intellij.psi.PsiMember
 import com.intellij.psi.PsiMethod
+import com.intellij.psi.PsiNamedElement
 import com.intellij.psi.PsiParameter
 import com.intellij.psi.PsiParameterListOwner
+import com.intellij.psi.PsiReferenceExpression
+import com.intellij.psi.util.CachedValue
+import com.intellij.psi.util.CachedValueProvider
+import com.intellij.psi.util.CachedValuesManager
+import com.intellij.psi.util.PsiModificationTracker
+import com.intellij.psi.util.PsiTreeUtil
+import com.intellij.util.concurrency.AppExecutorUtil
 import com.intellij.util.io.isDirectory
 import com.intellij.util.text.nullize
 import net.minecraftforge.srgutils.IMappingBuilder
 import net.minecraftforge.srgutils.IMappingFile
 import net.minecraftforge.srgutils.MinecraftVersion
+import org.jetbrains.plugins.gradle.util.GradleUtil
 import org.parchmentmc.feather.mapping.MappingDataBuilder
 import org.parchmentmc.feather.mapping.MappingDataContainer
 import org.parchmentmc.feather.mapping.VersionedMDCDelegate
@@ -51,38 +83,65 @@ import org.parchmentmc.scribe.io.ArchiveMappingDataIO
 import org.parchmentmc.scribe.io.EnigmaFormattedExplodedIO
 import org.parchmentmc.scribe.io.JsonMappingDataIO
 import org.parchmentmc.scribe.settings.ParchmentProjectSettings
+import org.parchmentmc.scribe.util.MappedOwnerFilter
 import org.parchmentmc.scribe.util.MemberReference
+import org.parchmentmc.scribe.util.bytecodeInfo
 import org.parchmentmc.scribe.util.findAllSuperConstructors
 import org.parchmentmc.scribe.util.findGradleModule
+import org.parchmentmc.scribe.util.findModule
 import org.parchmentmc.scribe.util.fullQualifiedName
 import org.parchmentmc.scribe.util.getParameterByJvmIndex
+import org.parchmentmc.scribe.util.internalName
 import org.parchmentmc.scribe.util.jvmIndex
 import org.parchmentmc.scribe.util.qualifiedMemberReference
+import java.io.File
 import java.io.IOException
+import java.nio.file.Path
 import java.nio.file.Paths
+import java.util.Collections
+import java.util.Optional
+import java.util.concurrent.ConcurrentHashMap
 import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
 import kotlin.io.path.extension
 
 @Service
-class ParchmentMappings(project: Project) {
+class ParchmentMappings(private val project: Project) : ModificationTracker {
     private val classMapCache: Cache<DataNode<ModuleData>, IMappingFile> = CacheBuilder.newBuilder()
         .weakKeys()
         .expireAfterWrite(5, TimeUnit.MINUTES)
         .build()
+    // SRG to Mojang mappings by the files they are loaded from, shared by all modules of the same version
+    private val srgMappingsCache: Cache<SrgMappingsFiles, IMappingFile> = CacheBuilder.newBuilder()
+        .maximumSize(8)
+        .build()
+    // Rebuilt on the next lookup once the container is edited, which covers classes created in mutable containers.
+    // Keyed on the SRG mappings of the workspace too, as modules of the same version may be named differently
+    private val ownerFilters: Cache<MappingDataContainer, MutableMap<Any, MappedOwnerFilter>> = CacheBuilder.newBuilder()
+        .weakKeys()
+        .build()
+    private val containerTrackers: Cache<MappingDataContainer, GenerationTracker> = CacheBuilder.newBuilder()
+        .weakKeys()
+        .build()
+    private val projectTracker = GenerationTracker()
     private val settings = ParchmentProjectSettings.getInstance(project)
     var mappingContainer: VersionedMDCDelegate<*>? = null
         private set
+    // Containers for Minecraft versions with their own mappings path, only loaded once a module of that version needs them
+    private val versionContainers = ConcurrentHashMap<String, Optional<LoadedContainer>>()
     var modified: Boolean = false
-
-    // Wrapper
-    private val mappingBuilder
-        get() = mappingContainer?.delegate as? MappingDataBuilder
+    // Containers with edits which haven't been written back to disk yet
+    private val dirtyContainers: MutableSet<VersionedMDCDelegate<*>> = Collections.newSetFromMap(MapMaker().weakKeys().makeMap())
+    // Outermost classes whose mapping data changed since open editors were last refreshed, and the names a file has to
+    // contain to possibly show that data
+    private val changedOwners: MutableSet<String> = ConcurrentHashMap.newKeySet()
+    private val changedNames: MutableSet<String> = ConcurrentHashMap.newKeySet()
 
     /**
-     * `true` if the mapping container is not null and a mutable builder which supports modification, `false` otherwise
+     * `true` if the default or any loaded per-version mapping container is a mutable builder which supports modification, `false` otherwise
      */
     val mappingsMutable: Boolean
-        get() = mappingBuilder != null
+        get() = mappingContainer?.delegate is MappingDataBuilder || versionContainers.values.any { it.orElse(null)?.container?.delegate is MappingDataBuilder }
 
     init {
         try {
@@ -92,6 +151,65 @@ class ParchmentMappings(project: Project) {
         }
     }
 
+    override fun getModificationCount(): Long = maxOf(MAPPING_GENERATION.modificationCount, projectTracker.modificationCount)
+
+    /**
+     * Tracks the mapping data [element] may be shown with: changes whenever mappings are reloaded, and whenever the
+     * container of its module is edited. Edits to other containers, or in other projects, leave it untouched.
+     */
+    fun getModificationTracker(element: PsiElement): ModificationTracker {
+        val container = getContainer(element) ?: return MAPPING_GENERATION
+        val tracker = containerTrackers.get(container, ::GenerationTracker)
+        return ModificationTracker { maxOf(MAPPING_GENERATION.modificationCount, tracker.modificationCount) }
+    }
+
+    /**
+     * Records a change to the mapping data of the given elements, then refreshes the hints, folding and inspections
+     * of only those open files which reference the classes the elements belong to.
+     */
+    fun markModified(vararg elements: PsiElement) {
+        modified = true
+        for (element in elements) {
+            val container = getContainer(element) ?: continue
+            dirtyContainers += container
+            containerTrackers.get(container, ::GenerationTracker).incModificationCount()
+        }
+        elements.mapNotNullTo(changedOwners) { it.outermostClassName }
+        elements.flatMapTo(changedNames) { it.referenceNames }
+        projectTracker.incModificationCount()
+
+        val owners = changedOwners.toSet()
+        val names = changedNames.toSet()
+        ReadAction.nonBlocking<List<PsiJavaFile>> {
+            val psiManager = PsiManager.getInstance(project)
+            FileEditorManager.getInstance(project).openFiles
+                .mapNotNull { psiManager.findFile(it) as? PsiJavaFile }
+                .filter { file -> file.mayShowOwners(owners, names) }
+        }
+            .inSmartMode(project)
+            .coalesceBy(this, changedOwners)
+            .finishOnUiThread(ModalityState.defaultModalityState()) { files ->
+                changedOwners.removeAll(owners)
+                changedNames.removeAll(names)
+                restartFiles(files)
+            }
+            .submit(AppExecutorUtil.getAppExecutorService())
+    }
+
+    private fun restartFiles(files: List<PsiJavaFile>) {
+        val daemon = DaemonCodeAnalyzer.getInstance(project)
+        val folding = CodeFoldingManager.getInstance(project)
+        for (file in files) {
+            daemon.restart(file)
+            val document = file.viewProvider.document ?: continue
+            for (editor in EditorFactory.getInstance().getEditors(document, project)) {
+                @Suppress("UnstableApiUsage")
+                DeclarativeInlayHintsPassFactory.resetModificationStamp(editor)
+                folding.scheduleAsyncFoldingUpdate(editor)
+            }
+        }
+    }
+
     fun getMappingsPathAsPath() = settings.mappingsPath.nullize(nullizeSpaces = true)?.let(Paths::get)
 
     fun getParameterMapping(parameter: PsiParameter, create: Boolean = false, searchSupers: Boolean = false) = getParameterData(parameter, create, searchSupers)?.name
@@ -99,7 +217,7 @@ class ParchmentMappings(project: Project) {
     fun getOrCreateParameterData(parameter: PsiParameter) = getParameterData(parameter, create = true) as? MappingDataBuilder.MutableParameterData
 
     fun getParameterData(parameter: PsiParameter, create: Boolean = false, searchSupers: Boolean = false): MappingDataContainer.ParameterData? {
-        if (mappingContainer == null)
+        if (!hasMappings)
             return null
         val methodData = getMethodData(parameter.declarationScope as? PsiParameterListOwner ?: return null, create = create, searchSupers = searchSupers) ?: return null
 
@@ -122,8 +240,8 @@ class ParchmentMappings(project: Project) {
         return builder.toString()
     }
 
-    private fun getMethodData(parameterListOwner: PsiParameterListOwner, create: Boolean = false, searchSupers: Boolean = false): MappingDataContainer.MethodData? {
-        if (mappingContainer == null)
+    internal fun getMethodData(parameterListOwner: PsiParameterListOwner, create: Boolean = false, searchSupers: Boolean = false): MappingDataContainer.MethodData? {
+        if (!hasMappings)
             return null
 
         return when (parameterListOwner) {
@@ -134,7 +252,7 @@ class ParchmentMappings(project: Project) {
     }
 
     fun getMethodData(lambda: PsiLambdaExpression, create: Boolean = false): MappingDataContainer.MethodData? {
-        if (mappingContainer == null)
+        if (!hasMappings || !create && !isMappedOwner(lambda))
             return null
         val memberRef = lambda.qualifiedMemberReference ?: return null
 
@@ -146,14 +264,18 @@ class ParchmentMappings(project: Project) {
     fun getOrCreateMethodData(method: PsiMethod) = getMethodData(method, create = true) as? MappingDataBuilder.MutableMethodData
 
     fun getMethodData(method: PsiMethod, create: Boolean = false, searchSupers: Boolean = false): MappingDataContainer.MethodData? {
-        if (mappingContainer == null)
+        if (!hasMappings)
             return null
-        val memberRef = method.qualifiedMemberReference
-        val methodData = getClassMemberData(memberRef, method, create, IMappingFile.IClass::remapMethod) { classData, methodName, methodDesc ->
-            if (create) (classData as? MappingDataBuilder.MutableClassData)?.getOrCreateMethod(methodName, methodDesc) else classData.getMethod(methodName, methodDesc)
+        val methodData = if (create || isMappedOwner(method)) {
+            getClassMemberData(method.qualifiedMemberReference, method, create, IMappingFile.IClass::remapMethod) { classData, methodName, methodDesc ->
+                if (create) (classData as? MappingDataBuilder.MutableClassData)?.getOrCreateMethod(methodName, methodDesc) else classData.getMethod(methodName, methodDesc)
+            }
+        } else {
+            null
         }
 
-        if (methodData == null && !create && searchSupers) {
+        // Super methods can only have data if a class in the hierarchy is mapped
+        if (methodData == null && !create && searchSupers && method.containingClass?.let(::mayInheritMappedData) == true) {
             if (method.isConstructor) {
                 method.findAllSuperConstructors().forEach { superConstructor ->
                     // Return if not null
@@ -173,7 +295,7 @@ class ParchmentMappings(project: Project) {
     fun getOrCreateFieldData(field: PsiField) = getFieldData(field, create = true) as? MappingDataBuilder.MutableFieldData
 
     fun getFieldData(field: PsiField, create: Boolean = false): MappingDataContainer.FieldData? {
-        if (mappingContainer == null)
+        if (!hasMappings || !create && !isMappedOwner(field))
             return null
         return getClassMemberData(field.qualifiedMemberReference, field, create, { srgClass, name, _ -> srgClass.remapField(name) }) { classData, fieldName, fieldDesc ->
             if (create) (classData as? MappingDataBuilder.MutableClassData)?.getOrCreateField(fieldName, fieldDesc) else classData.getField(fieldName)
@@ -183,19 +305,21 @@ class ParchmentMappings(project: Project) {
     fun getOrCreateClassData(clazz: PsiClass) = getClassData(clazz, create = true) as? MappingDataBuilder.MutableClassData
 
     fun getClassData(clazz: PsiClass, create: Boolean = false): MappingDataContainer.ClassData? {
+        if (!create && !isMappedOwner(clazz))
+            return null
         val className = clazz.fullQualifiedName?.replace('.', '/') ?: return null
         val srgToMoj = getSrgToMoj(clazz)
         val remappedName = srgToMoj?.remapClass(className) ?: className
+        val container = getContainer(clazz) ?: return null
 
-        return if (create) mappingBuilder?.getOrCreateClass(remappedName) else mappingContainer?.getClass(remappedName)
+        return if (create) (container.delegate as? MappingDataBuilder)?.getOrCreateClass(remappedName) else container.getClass(remappedName)
     }
 
     private fun <T> getClassMemberData(
         memberRef: MemberReference, element: PsiElement, create: Boolean, nameRemapper: (IMappingFile.IClass, String, String) -> String?,
         applier: (MappingDataContainer.ClassData, String, String) -> T
     ): T? {
-        if (mappingContainer == null)
-            return null
+        val container = getContainer(element) ?: return null
         val containingClass = memberRef.owner?.replace('.', '/') ?: return null
         val memberDesc = memberRef.descriptor ?: return null
 
@@ -205,26 +329,168 @@ class ParchmentMappings(project: Project) {
         val remappedDesc = srgToMoj?.remapDescriptor(memberDesc) ?: memberDesc
         val remappedName = srgClass?.let { nameRemapper(it, memberRef.name, remappedDesc) } ?: memberRef.name
 
-        val classData = (if (create) mappingBuilder?.getOrCreateClass(remappedClass) else mappingContainer?.getClass(remappedClass)) ?: return null
+        val classData = (if (create) (container.delegate as? MappingDataBuilder)?.getOrCreateClass(remappedClass) else container.getClass(remappedClass)) ?: return null
         return applier(classData, remappedName, remappedDesc)
     }
 
+    private val hasMappings
+        get() = mappingContainer != null || settings.versionMappingsPaths.isNotEmpty()
+
+    /**
+     * `false` if the outermost class of [element] has no data at all in the container of its module, in which case
+     * none of its members can be mapped. Only needs the class name, so it is safe to call before any descriptor work.
+     */
+    fun isMappedOwner(element: PsiElement): Boolean {
+        val container = getContainer(element) ?: return false
+        val ownerName = element.outermostClassName?.replace('.', '/') ?: return false
+
+        return getOwnerFilter(container, element).mayContain(ownerName)
+    }
+
+    /**
+     * `false` if neither [aClass] nor any of its super types has data in the container of its module, in which case
+     * none of its members can be mapped, not even through their super methods.
+     */
+    fun mayInheritMappedData(aClass: PsiClass): Boolean {
+        val container = getContainer(aClass) ?: return false
+        val filter = getOwnerFilter(container, aClass)
+
+        return aClass.hierarchyNames.any(filter::mayContain)
+    }
+
+    /**
+     * The internal names of this class and all of its super types, without JDK classes, which can't extend mapped
+     * classes. Compiled classes list their direct super types in the bytecode index, so only the names not seen yet
+     * are resolved.
+     */
+    private val PsiClass.hierarchyNames: Set<String>
+        get() = CachedValuesManager.getCachedValue(this, HIERARCHY_NAMES_KEY) {
+            val names = HashSet<String>()
+            fun collect(psiClass: PsiClass) {
+                val name = psiClass.fullQualifiedName?.replace('.', '/') ?: return
+                if (name in names || psiClass.isJdkElement())
+                    return
+                names += name
+
+                val superNames = if (psiClass is PsiCompiledElement) psiClass.bytecodeInfo?.superTypes else null
+                if (superNames == null) {
+                    psiClass.supers.forEach(::collect)
+                } else {
+                    val facade = JavaPsiFacade.getInstance(project)
+                    superNames.filterNot(names::contains).forEach { superName ->
+                        facade.findClass(superName.replace('/', '.').replace('$', '.'), psiClass.resolveScope)?.let(::collect)
+                    }
+                }
+            }
+
+            collect(this)
+            CachedValueProvider.Result.create<Set<String>>(
+                names,
+                PsiModificationTracker.getInstance(project).javaStructureModificationTracker,
+                ProjectRootManager.getInstance(project)
+            )
+        }
+
+    /**
+     * `false` if neither the class of [method] nor any of its super types has parameter data for a method with its name
+     * in the container of its module, in which case neither it nor any of its super methods can have mapped parameters.
+     */
+    fun mayHaveParameterData(method: PsiMethod): Boolean {
+        val container = getContainer(method) ?: return false
+        val aClass = method.containingClass ?: return false
+        val filter = getOwnerFilter(container, method)
+        val methodName = method.internalName
+
+        return aClass.hierarchyNames.any { filter.mayHaveParameters(it, methodName) }
+    }
+
+    private fun getOwnerFilter(container: MappingDataContainer, element: PsiElement): MappedOwnerFilter {
+        val stamp = containerTrackers.get(container, ::GenerationTracker).modificationCount
+        val srgToMoj = getSrgToMoj(element)?.takeIf { it.classes.isNotEmpty() }
+        val filters = ownerFilters.get(container) { MapMaker().weakKeys().makeMap() }
+        val key = srgToMoj ?: NO_SRG_MAPPINGS
+        filters[key]?.takeIf { it.stamp == stamp }?.let { return it }
+
+        return MappedOwnerFilter.of(container, stamp, srgToMoj).also { filters[key] = it }
+    }
+
+    private fun PsiElement.isJdkElement(): Boolean {
+        val file = containingFile?.virtualFile ?: return false
+        val orderEntries = ProjectFileIndex.getInstance(project).getOrderEntriesForFile(file)
+        return orderEntries.isNotEmpty() && orderEntries.all { it is JdkOrderEntry }
+    }
+
+    /**
+     * Returns the container for the Minecraft version of the module [element] belongs to, falling back to the default container
+     * if that version has no mappings path of its own.
+     */
+    fun getContainer(element: PsiElement): VersionedMDCDelegate<*>? {
+        if (settings.versionMappingsPaths.isEmpty())
+            return mappingContainer
+        return getVersionContainer(element.findMcVersion())
+    }
+
+    /**
+     * `true` if the settings name mappings for [module], or any module of the project if `null`: either a default path
+     * is set or there is a path for the Minecraft version of the module. Nothing is loaded, so this is cheap enough for
+     * action updates.
+     */
+    fun hasMappingsPath(module: Module?): Boolean {
+        if (settings.mappingsPath.isNotBlank())
+            return true
+        val versions = settings.versionMappingsPaths.filterValues { it.isNotBlank() }.keys
+        if (versions.isEmpty())
+            return false
+
+        val modules = module?.let(::listOf) ?: ModuleManager.getInstance(project).modules.asList()
+        return modules.any { it.mcVersion in versions }
+    }
+
+    /**
+     * Returns the container of the mappings path for [mcVersion], loading it on first use, falling back to the default
+     * container if that version has no (readable) mappings of its own.
+     */
+    fun getVersionContainer(mcVersion: String?): VersionedMDCDelegate<*>? {
+        if (mcVersion == null)
+            return mappingContainer
+
+        // Loaded outside of the map so that lookups for other versions don't wait on the I/O; if two threads race, the first one wins
+        val loaded = versionContainers[mcVersion] ?: loadVersionContainer(mcVersion).let { versionContainers.putIfAbsent(mcVersion, it) ?: it }
+        return loaded.orElse(null)?.container ?: mappingContainer
+    }
+
+    private fun loadVersionContainer(version: String): Optional<LoadedContainer> {
+        val path = settings.versionMappingsPaths[version]?.nullize(nullizeSpaces = true)?.let(Paths::get) ?: return Optional.empty()
+        return try {
+            Optional.ofNullable(readContainer(path)?.let { LoadedContainer(path, it) })
+        } catch (e: Exception) {
+            LOGGER.warn("Failed to load Parchment mappings for Minecraft $version from $path", e)
+            Optional.empty()
+        }
+    }
+
+    /**
+     * Calls [consumer] for each mutable container with edits which weren't written back yet, and considers them written.
+     */
+    fun forEachModifiedContainer(consumer: (Path, VersionedMDCDelegate<*>) -> Unit) {
+        fun visit(path: Path?, container: VersionedMDCDelegate<*>) {
+            if (path != null && container.delegate is MappingDataBuilder && dirtyContainers.remove(container))
+                consumer(path, container)
+        }
+
+        mappingContainer?.let { visit(getMappingsPathAsPath(), it) }
+        versionContainers.values.forEach { loaded -> loaded.orElse(null)?.let { visit(it.path, it.container) } }
+    }
+
     fun resetMappingContainer() {
         modified = false
+        dirtyContainers.clear()
+        versionContainers.clear()
+        MAPPING_GENERATION.incModificationCount()
         val path = getMappingsPathAsPath()
 
         try {
-            mappingContainer = if (path == null) {
-                null
-            } else if (path.isDirectory()) {
-                EnigmaFormattedExplodedIO.INSTANCE.read(path, true)
-            } else if (path.extension == "json") {
-                JsonMappingDataIO.INSTANCE.read(path, false)
-            } else if (path.extension == "zip") {
-                ArchiveMappingDataIO.INSTANCE.read(path, false)
-            } else {
-                null
-            }
+            mappingContainer = path?.let(::readContainer)
         } catch (e: Exception) {
             mappingContainer = null
             settings.mappingsPath = ""
@@ -232,25 +498,178 @@ class ParchmentMappings(project: Project) {
         }
     }
 
+    fun resetVersionContainers() {
+        versionContainers.clear()
+        MAPPING_GENERATION.incModificationCount()
+    }
+
+    private fun readContainer(path: Path): VersionedMDCDelegate<*>? = if (path.isDirectory()) {
+        EnigmaFormattedExplodedIO.INSTANCE.read(path, true)
+    } else if (path.extension == "json") {
+        JsonMappingDataIO.INSTANCE.read(path, false)
+    } else if (path.extension == "zip") {
+        ArchiveMappingDataIO.INSTANCE.read(path, false)
+    } else {
+        null
+    }
+
+    private fun PsiElement.findMcVersion(): String? {
+        val module = findModule() ?: containingFile?.virtualFile?.let { file ->
+            // Library classes (such as the Minecraft jar itself) don't belong to a single module, so use any module depending on them
+            ProjectFileIndex.getInstance(project).getOrderEntriesForFile(file).firstOrNull()?.ownerModule
+        } ?: return null
+
+        return module.mcVersion
+    }
+
+    private val Module.mcVersion: String?
+        get() = CachedValuesManager.getManager(project).getCachedValue(this) {
+            @Suppress("UnstableApiUsage")
+            val mcVersion = GradleUtil.findGradleModuleData(this)?.findForgeGradleModel()?.mcVersion
+            CachedValueProvider.Result.create(mcVersion, ProjectRootManager.getInstance(project))
+        }
+
+    private val PsiElement.outermostClassName: String?
+        get() = (PsiTreeUtil.getTopmostParentOfType(this, PsiClass::class.java) ?: this as? PsiClass)?.qualifiedName
+
+    /**
+     * Names of which at least one appears in the text of any file showing mapping data of this element: the simple
+     * name of its outermost class, and the name of the member itself (the method, for parameters).
+     */
+    private val PsiElement.referenceNames: List<String>
+        get() {
+            val owner = PsiTreeUtil.getTopmostParentOfType(this, PsiClass::class.java) ?: this as? PsiClass
+            val member = when (this) {
+                is PsiParameter -> (declarationScope as? PsiMethod)?.name
+                is PsiNamedElement -> name
+                else -> null
+            }
+            return listOfNotNull(owner?.name, member)
+        }
+
+    /**
+     * Whether this file may show mapping data of the given outermost classes. Resolving the references of a file is
+     * expensive, so files which don't contain any of the [names] are ruled out first, unless their owners are known.
+     */
+    private fun PsiJavaFile.mayShowOwners(owners: Set<String>, names: Set<String>): Boolean {
+        val known = getUserData(REFERENCED_OWNERS_KEY)?.upToDateOrNull
+        if (known == null && names.none { StringUtil.contains(viewProvider.contents, it) })
+            return false
+        return (known?.get() ?: referencedOwners).any(owners::contains)
+    }
+
+    /**
+     * The outermost classes whose mapping data may be shown in this file: the classes it declares, the classes of
+     * everything it references, and all of their supertypes (for data found through super methods).
+     */
+    private val PsiJavaFile.referencedOwners: Set<String>
+        get() = CachedValuesManager.getCachedValue(this, REFERENCED_OWNERS_KEY) {
+            val owners = HashSet<String>()
+            val visited = HashSet<PsiClass>()
+            fun addClass(psiClass: PsiClass?) {
+                if (psiClass == null || !visited.add(psiClass))
+                    return
+                psiClass.outermostClassName?.let(owners::add)
+                psiClass.supers.forEach(::addClass)
+            }
+
+            accept(object : JavaRecursiveElementWalkingVisitor() {
+                override fun visitClass(aClass: PsiClass) {
+                    addClass(aClass)
+                    super.visitClass(aClass)
+                }
+
+                override fun visitReferenceElement(reference: PsiJavaCodeReferenceElement) {
+                    when (val target = reference.resolve()) {
+                        is PsiClass -> addClass(target)
+                        is PsiMember -> addClass(target.containingClass)
+                    }
+                    super.visitReferenceElement(reference)
+                }
+
+                override fun visitReferenceExpression(expression: PsiReferenceExpression) {
+                    visitReferenceElement(expression)
+                }
+            })
+            CachedValueProvider.Result.create(owners, this, PsiModificationTracker.getInstance(project).javaStructureModificationTracker)
+        }
+
+    private fun DataNode<ModuleData>.findForgeGradleModel() = children.find { it.key == ForgeGradleIntellijModel.KEY }?.data as? ForgeGradleIntellijModel
+
     private fun getSrgToMoj(element: PsiElement) = try {
         (element.containingFile as? PsiJavaFile)?.findGradleModule()?.let { gradleModule ->
             classMapCache.get(gradleModule) {
-                val fgModel = gradleModule.children.find { it.key == ForgeGradleIntellijModel.KEY }?.data as? ForgeGradleIntellijModel
+                val fgModel = gradleModule.findForgeGradleModel()
                 fgModel?.takeIf { it.clientMappings == null || isOfficialVersion(it.mcVersion) }?.let {
                     return@get IMappingBuilder.create().build().getMap("left", "right") // Return empty data
                 }
                 if (fgModel == null)
                     throw Exception() // Throw an exception that is immediately swallowed, we want to keep checking the cache
 
-                IMappingFile.load(fgModel.clientMappings).chain(IMappingFile.load(fgModel.extractSrgTaskOutput)).reverse()
+                loadSrgToMoj(fgModel)
             }
         }
     } catch (e: Exception) {
         null
     }
 
+    private fun loadSrgToMoj(fgModel: ForgeGradleIntellijModel): IMappingFile {
+        val files = SrgMappingsFiles(fgModel.clientMappings!!, fgModel.extractSrgTaskOutput, fgModel.extractSrgTaskOutput.lastModified())
+        return srgMappingsCache.get(files) {
+            IMappingFile.load(files.clientMappings).chain(IMappingFile.load(files.srg)).reverse()
+        }
+    }
+
+    /**
+     * Drops the SRG mappings cached per module and loads those of [models] right away, so that the first lookups after
+     * a sync (or after `extractSrg` ran) don't have to parse them. Callers invalidate the hints once this is done.
+     */
+    fun warmSrgMappings(models: Collection<ForgeGradleIntellijModel>) {
+        classMapCache.invalidateAll()
+        for (model in models) {
+            if (model.clientMappings == null || isOfficialVersion(model.mcVersion) || !model.extractSrgTaskOutput.isFile)
+                continue
+            try {
+                loadSrgToMoj(model)
+            } catch (e: Exception) {
+                LOGGER.warn("Failed to load SRG mappings from ${model.extractSrgTaskOutput}", e)
+            }
+        }
+    }
+
+    private class LoadedContainer(val path: Path, val container: VersionedMDCDelegate<*>)
+
+    private data class SrgMappingsFiles(val clientMappings: File, val srg: File, val srgLastModified: Long)
+
+    /**
+     * A modification tracker whose counts are drawn from one sequence shared by all of them, so the greatest count of
+     * several trackers changes whenever any of them does.
+     */
+    class GenerationTracker : ModificationTracker {
+        @Volatile
+        private var count = 0L
+
+        override fun getModificationCount(): Long = count
+
+        fun incModificationCount() {
+            count = GENERATIONS.incrementAndGet()
+        }
+    }
+
     companion object {
+        private val LOGGER = Logger.getInstance(ParchmentMappings::class.java)
         private val v1_17 = MinecraftVersion.from("1.17")
+        private val GENERATIONS = AtomicLong()
+        private val REFERENCED_OWNERS_KEY = Key.create<CachedValue<Set<String>>>("SCRIBE_REFERENCED_OWNERS")
+        private val HIERARCHY_NAMES_KEY = Key.create<CachedValue<Set<String>>>("SCRIBE_HIERARCHY_NAMES")
+        private val NO_SRG_MAPPINGS = Any()
+
+        /**
+         * Incremented whenever mappings are (re)loaded or their settings change, for caches of derived data. Edits only
+         * move the tracker of the edited container, see [getModificationTracker].
+         */
+        @JvmField
+        val MAPPING_GENERATION = GenerationTracker()
 
         private fun isOfficialVersion(mcVersion: String) = try {
             v1_17 <= MinecraftVersion.from(mcVersion)
@@ -260,6 +679,23 @@ class ParchmentMappings(project: Project) {
 
         fun getInstance(project: Project): ParchmentMappings = project.getService(ParchmentMappings::class.java)
 
-        fun invalidateHints() = @Suppress("UnstableApiUsage") InlayHintsPassFactory.forceHintsUpdateOnNextPass()
+        /**
+         * Drops all data derived from the mappings and makes open editors recompute their hints. Safe to call from any
+         * thread, as the inlay pass stamps are only reset on the EDT.
+         */
+        fun invalidateHints() {
+            MAPPING_GENERATION.incModificationCount()
+            val application = ApplicationManager.getApplication()
+            if (application.isDispatchThread) {
+                resetHintStamps()
+            } else {
+                application.invokeLater(::resetHintStamps)
+            }
+        }
+
+        private fun resetHintStamps() {
+            @Suppress("UnstableApiUsage")
+            DeclarativeInlayHintsPassFactory.resetModificationStamp()
+        }
     }
 }
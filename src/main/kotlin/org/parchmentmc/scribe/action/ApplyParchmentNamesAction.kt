@@ -0,0 +1,177 @@
+/*
+ * Scribe
+ * Copyright (C) 2023 ParchmentMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.parchmentmc.scribe.action
+
+import com.intellij.concurrency.JobLauncher
+import com.intellij.ide.highlighter.JavaFileType
+import com.intellij.openapi.actionSystem.ActionUpdateThread
+import com.intellij.openapi.actionSystem.AnAction
+import com.intellij.openapi.actionSystem.AnActionEvent
+import com.intellij.openapi.actionSystem.LangDataKeys
+import com.intellij.openapi.application.ApplicationManager
+import com.intellij.openapi.application.ModalityState
+import com.intellij.openapi.application.ReadAction
+import com.intellij.openapi.command.WriteCommandAction
+import com.intellij.openapi.progress.ProgressIndicator
+import com.intellij.openapi.progress.Task
+import com.intellij.openapi.project.Project
+import com.intellij.openapi.ui.DialogWrapper
+import com.intellij.openapi.ui.Messages
+import com.intellij.openapi.vfs.VirtualFile
+import com.intellij.psi.PsiJavaFile
+import com.intellij.psi.PsiManager
+import com.intellij.psi.PsiMethod
+import com.intellij.psi.search.FileTypeIndex
+import com.intellij.psi.search.GlobalSearchScope
+import com.intellij.psi.util.PsiTreeUtil
+import com.intellij.ui.IdeBorderFactory
+import com.intellij.ui.components.JBList
+import com.intellij.ui.components.JBScrollPane
+import com.intellij.util.ui.JBUI
+import org.parchmentmc.scribe.ParchmentMappings
+import org.parchmentmc.scribe.inspection.NonParchmentMethodParametersInspection
+import org.parchmentmc.scribe.inspection.ParchmentParameterRenamer
+import org.parchmentmc.scribe.inspection.ParchmentParameterRenamer.ParameterRename
+import java.awt.BorderLayout
+import java.util.concurrent.ConcurrentLinkedQueue
+import javax.swing.JComponent
+import javax.swing.JPanel
+
+/**
+ * Renames the parameters of every method in the sources of the selected module, or the whole project, which don't use
+ * their Parchment names yet. Files are analysed in parallel, the renames are previewed, then applied in chunks which
+ * share a single undo step.
+ */
+class ApplyParchmentNamesAction : AnAction() {
+    override fun getActionUpdateThread(): ActionUpdateThread = ActionUpdateThread.BGT
+
+    override fun update(e: AnActionEvent) {
+        val project = e.project
+        e.presentation.isEnabled = project != null && ParchmentMappings.getInstance(project).hasMappingsPath(e.getData(LangDataKeys.MODULE_CONTEXT))
+    }
+
+    override fun actionPerformed(e: AnActionEvent) {
+        val project = e.project ?: return
+        val module = e.getData(LangDataKeys.MODULE_CONTEXT)
+        val scope = module?.let { GlobalSearchScope.moduleScope(it) } ?: GlobalSearchScope.projectScope(project)
+        val renamer = ParchmentParameterRenamer(project)
+
+        object : Task.Backgroundable(project, "Finding parameters without Parchment names", true) {
+            private val renames = ConcurrentLinkedQueue<ParameterRename>()
+            private val skipped = ConcurrentLinkedQueue<ParameterRename>()
+
+            override fun run(indicator: ProgressIndicator) {
+                indicator.isIndeterminate = false
+                val files = ReadAction.nonBlocking<Collection<VirtualFile>> { FileTypeIndex.getFiles(JavaFileType.INSTANCE, scope) }
+                    .inSmartMode(project)
+                    .executeSynchronously()
+                    .toList()
+
+                JobLauncher.getInstance().invokeConcurrentlyUnderProgress(files, indicator) { file ->
+                    ReadAction.nonBlocking<List<ParameterRename>?> { collectRenames(file) }
+                        .inSmartMode(project)
+                        .executeSynchronously()
+                        ?.let(renames::addAll)
+                    true
+                }
+            }
+
+            private fun collectRenames(file: VirtualFile): List<ParameterRename>? {
+                val psiFile = file.takeIf { it.isValid }?.let { PsiManager.getInstance(project).findFile(it) } as? PsiJavaFile ?: return null
+                val mappings = ParchmentMappings.getInstance(project)
+                val methods = PsiTreeUtil.findChildrenOfType(psiFile, PsiMethod::class.java).mapNotNull { method ->
+                    mappings.getMethodData(method, searchSupers = true)
+                        ?.takeIf { NonParchmentMethodParametersInspection.isMismatched(it, method.parameterList) }
+                        ?.let { method to it }
+                }.toMap()
+                return if (methods.isEmpty()) null else renamer.collectRenames(methods, skipped)
+            }
+
+            override fun onSuccess() {
+                if (renames.isEmpty()) {
+                    val message = if (skipped.isEmpty()) "All parameters already use their Parchment names."
+                    else "All other parameters already use their Parchment names, ${skipped.size} were skipped because of name conflicts."
+                    Messages.showInfoMessage(project, message, "Apply Parchment Names")
+                    return
+                }
+                val renames = ReadAction.compute<List<ParameterRename>, RuntimeException> { renames.filter { it.parameter.isValid } }
+                val skipped = ReadAction.compute<List<String>, RuntimeException> {
+                    skipped.filter { it.parameter.isValid }.map(ParchmentParameterRenamer::describe)
+                }
+                if (PreviewDialog(project, renames, skipped).showAndGet()) {
+                    applyRenames(project, renamer, renames)
+                }
+            }
+        }.queue()
+    }
+
+    private fun applyRenames(project: Project, renamer: ParchmentParameterRenamer, renames: List<ParameterRename>) {
+        object : Task.Backgroundable(project, "Applying Parchment names", true) {
+            override fun run(indicator: ProgressIndicator) {
+                indicator.text = "Searching for parameter usages"
+                renamer.findUsages(renames, indicator)
+
+                indicator.text = "Renaming parameters"
+                indicator.isIndeterminate = false
+                val groupId = Any()
+                val chunks = renames.chunked(CHUNK_SIZE)
+                chunks.forEachIndexed { index, chunk ->
+                    indicator.checkCanceled()
+                    ApplicationManager.getApplication().invokeAndWait({
+                        WriteCommandAction.writeCommandAction(project).withName(COMMAND_NAME).withGroupId(groupId).run<RuntimeException> {
+                            renamer.apply(chunk)
+                        }
+                    }, ModalityState.defaultModalityState())
+                    indicator.fraction = (index + 1).toDouble() / chunks.size
+                }
+            }
+        }.queue()
+    }
+
+    private class PreviewDialog(project: Project, renames: List<ParameterRename>, private val skipped: List<String>) : DialogWrapper(project) {
+        private val entries = renames.map(ParchmentParameterRenamer::describe)
+
+        init {
+            title = "Apply Parchment Names"
+            setOKButtonText("Rename ${renames.size} Parameters")
+            init()
+        }
+
+        override fun createCenterPanel(): JComponent = JPanel(BorderLayout(0, JBUI.scale(8))).apply {
+            add(JBScrollPane(JBList(entries)), BorderLayout.CENTER)
+            if (skipped.isNotEmpty()) {
+                add(JBScrollPane(JBList(skipped)).apply {
+                    border = IdeBorderFactory.createTitledBorder("Skipped because of name conflicts (${skipped.size})")
+                    preferredSize = JBUI.size(600, 120)
+                }, BorderLayout.SOUTH)
+            }
+            preferredSize = JBUI.size(600, 400)
+        }
+    }
+
+    companion object {
+        private const val CHUNK_SIZE = 200
+        private const val COMMAND_NAME = "Apply Parchment Names"
+    }
+}
@@ -64,8 +64,7 @@ class MapJavadocAction : MappingAction() {
             val parameterData = mappings.getOrCreateParameterData(parameter) ?: return
 
             parameterData.javadoc = newJavadoc
-            mappings.modified = true
-            ParchmentMappings.invalidateHints()
+            mappings.markModified(parameter)
         }
 
         MapParameterAction.mapParameter(e, parameter, mapFun)
@@ -104,7 +103,7 @@ class MapJavadocAction : MappingAction() {
                 }
                 methodData.addJavadoc(javadocs)
             }
-            mappings.modified = true
+            mappings.markModified(method)
         }
 
         if (allSuperMethods.isNotEmpty()) {
@@ -132,8 +131,7 @@ class MapJavadocAction : MappingAction() {
 
         fieldData.clearJavadoc()
         fieldData.addJavadoc(newJavadoc?.split('\n') ?: listOf())
-        mappings.modified = true
-        ParchmentMappings.invalidateHints()
+        mappings.markModified(field)
     }
 
     private fun mapClassJavadoc(project: Project, clazz: PsiClass, e: AnActionEvent) {
@@ -148,8 +146,7 @@ class MapJavadocAction : MappingAction() {
 
         classData.clearJavadoc()
         classData.addJavadoc(newJavadoc?.split('\n') ?: listOf())
-        mappings.modified = true
-        ParchmentMappings.invalidateHints()
+        mappings.markModified(clazz)
     }
 
     private fun showInputDialog(e: AnActionEvent, type: String, currentJavadoc: String?, multiline: Boolean = false) = (if (multiline) Messages.showMultilineInputDialog(
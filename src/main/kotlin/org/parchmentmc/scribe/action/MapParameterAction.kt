@@ -56,15 +56,14 @@ class MapParameterAction : MappingAction() {
             val parameterData = mappings.getOrCreateParameterData(parameter) ?: return
 
             parameterData.name = mapped
-            mappings.modified = true
-            ParchmentMappings.invalidateHints()
+            mappings.markModified(parameter)
         }
 
         mapParameter(e, parameter, mapFun)
     }
 
     companion object {
-        private val parameterRegex = Regex("[a-z][a-zA-Z0-9]*")
+        internal val parameterRegex = Regex("[a-z][a-zA-Z0-9]*")
         private val inputValidator = object : InputValidatorEx {
             override fun checkInput(inputString: String?) = isValid(inputString)
 
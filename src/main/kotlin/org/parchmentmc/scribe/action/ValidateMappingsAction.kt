@@ -0,0 +1,115 @@
+/*
+ * Scribe
+ * Copyright (C) 2023 ParchmentMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.parchmentmc.scribe.action
+
+import com.intellij.openapi.actionSystem.ActionUpdateThread
+import com.intellij.openapi.actionSystem.AnAction
+import com.intellij.openapi.actionSystem.AnActionEvent
+import com.intellij.openapi.fileChooser.FileChooser
+import com.intellij.openapi.fileChooser.FileChooserDescriptorFactory
+import com.intellij.openapi.fileEditor.FileEditorManager
+import com.intellij.openapi.progress.ProgressIndicator
+import com.intellij.openapi.progress.Task
+import com.intellij.openapi.ui.Messages
+import com.intellij.openapi.util.io.FileUtil
+import com.intellij.openapi.vfs.LocalFileSystem
+import org.parchmentmc.scribe.ParchmentMappings
+import org.parchmentmc.scribe.settings.ParchmentProjectSettings
+import org.parchmentmc.scribe.validation.MappingValidator
+import java.nio.file.Files
+import java.nio.file.Path
+
+class ValidateMappingsAction : AnAction() {
+    override fun getActionUpdateThread(): ActionUpdateThread = ActionUpdateThread.BGT
+
+    override fun update(e: AnActionEvent) {
+        e.presentation.isEnabled = e.project?.let { getChoices(ParchmentProjectSettings.getInstance(it)) }?.isNotEmpty() == true
+    }
+
+    /**
+     * The mappings which can be validated: the default mappings, if set, and the mappings of each Minecraft version.
+     * Versions are labelled by their number, the default mappings by `null`.
+     */
+    private fun getChoices(settings: ParchmentProjectSettings): List<String?> {
+        val versions = settings.versionMappingsPaths.filterValues { it.isNotBlank() }.keys.sorted()
+        return if (settings.mappingsPath.isNotBlank()) listOf(null) + versions else versions
+    }
+
+    override fun actionPerformed(e: AnActionEvent) {
+        val project = e.project ?: return
+        val choices = getChoices(ParchmentProjectSettings.getInstance(project))
+        if (choices.isEmpty())
+            return
+        val mcVersion = if (choices.size == 1) {
+            choices.single()
+        } else {
+            val labels = choices.map { it?.let { version -> "Minecraft $version" } ?: DEFAULT_LABEL }.toTypedArray()
+            val index = Messages.showChooseDialog(project, "Choose the mappings to validate:", TITLE, null, labels, labels.first())
+            if (index < 0)
+                return
+            choices[index]
+        }
+        val jar = FileChooser.chooseFile(FileChooserDescriptorFactory.createSingleFileDescriptor("jar").withTitle("Choose Minecraft Jar"), project, null)
+            ?.toNioPath() ?: return
+
+        object : Task.Backgroundable(project, "Validating Parchment mappings", true) {
+            private lateinit var reportPath: Path
+            private var issues = 0
+
+            override fun run(indicator: ProgressIndicator) {
+                val mappings = ParchmentMappings.getInstance(project)
+                val container = (if (mcVersion == null) mappings.mappingContainer else mappings.getVersionContainer(mcVersion))
+                    ?: throw IllegalStateException("The ${mcVersion?.let { "Minecraft $it" } ?: "default"} mappings could not be loaded")
+                indicator.isIndeterminate = false
+                reportPath = FileUtil.createTempFile("parchment-validation", ".txt", true).toPath()
+                Files.newBufferedWriter(reportPath).use { writer ->
+                    issues = MappingValidator(container).validate(jar, indicator) { issue ->
+                        synchronized(writer) {
+                            writer.write(issue.toString())
+                            writer.newLine()
+                        }
+                    }
+                }
+            }
+
+            override fun onThrowable(error: Throwable) {
+                Messages.showErrorDialog(project, error.message ?: error.toString(), TITLE)
+            }
+
+            override fun onSuccess() {
+                if (issues == 0) {
+                    Messages.showInfoMessage(project, "No issues were found.", TITLE)
+                    return
+                }
+                val reportFile = LocalFileSystem.getInstance().refreshAndFindFileByNioFile(reportPath) ?: return
+                FileEditorManager.getInstance(project).openFile(reportFile, true)
+            }
+        }.queue()
+    }
+
+    companion object {
+        private const val TITLE = "Parchment Validation"
+        private const val DEFAULT_LABEL = "Default mappings"
+    }
+}
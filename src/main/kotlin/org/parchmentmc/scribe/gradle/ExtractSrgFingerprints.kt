@@ -0,0 +1,77 @@
+/*
+ * Scribe
+ * Copyright (C) 2023 ParchmentMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.parchmentmc.scribe.gradle
+
+import com.intellij.openapi.components.PersistentStateComponent
+import com.intellij.openapi.components.State
+import com.intellij.openapi.components.Storage
+import com.intellij.openapi.components.StoragePathMacros
+import com.intellij.openapi.project.Project
+import com.intellij.util.io.DigestUtil
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Fingerprints of the inputs and output of each `extractSrg` task as of its last run from the IDE, so that syncs only
+ * run the tasks whose output is missing or no longer matches its inputs.
+ */
+@State(name = "ScribeExtractSrgFingerprints", storages = [Storage(StoragePathMacros.WORKSPACE_FILE)])
+class ExtractSrgFingerprints : PersistentStateComponent<ExtractSrgFingerprints.State> {
+    // Recorded from pooled threads while the state may be serialized, hence the concurrent map
+    data class State(
+        var fingerprints: MutableMap<String, String> = ConcurrentHashMap()
+    )
+
+    private var state = State()
+
+    override fun getState(): State {
+        return state
+    }
+
+    override fun loadState(state: State) {
+        this.state = State(ConcurrentHashMap(state.fingerprints))
+    }
+
+    fun isUpToDate(model: ForgeGradleIntellijModel): Boolean =
+        model.extractSrgTaskOutput.isFile && state.fingerprints[model.extractSrgTaskName] == fingerprint(model)
+
+    fun record(model: ForgeGradleIntellijModel) {
+        if (model.extractSrgTaskOutput.isFile) {
+            state.fingerprints[model.extractSrgTaskName] = fingerprint(model)
+        } else {
+            state.fingerprints.remove(model.extractSrgTaskName)
+        }
+    }
+
+    private fun fingerprint(model: ForgeGradleIntellijModel): String {
+        val builder = StringBuilder()
+        for (file in model.extractSrgTaskInputs.sortedBy { it.path } + model.extractSrgTaskOutput) {
+            builder.append(file.path).append(':').append(file.length()).append(':').append(file.lastModified()).append(';')
+        }
+        return DigestUtil.sha256Hex(builder.toString().toByteArray())
+    }
+
+    companion object {
+        fun getInstance(project: Project): ExtractSrgFingerprints = project.getService(ExtractSrgFingerprints::class.java)
+    }
+}
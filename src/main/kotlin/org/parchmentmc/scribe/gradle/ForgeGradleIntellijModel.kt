@@ -34,6 +34,7 @@ data class ForgeGradleIntellijModel(
     val mcVersion: String,
     val extractSrgTaskName: String,
     val extractSrgTaskOutput: File,
+    val extractSrgTaskInputs: List<File>,
     val clientMappings: File?
 ) : AbstractExternalEntityData(ideModule.owner) {
     companion object {
@@ -38,7 +38,7 @@ object ForgeGradleModelHandler {
         val suffix = if (gradleProjectPath.endsWith(':')) "" else ":"
         val taskName = gradleProjectPath + suffix + data.getExtractSrgTaskName()
 
-        val modelData = ForgeGradleIntellijModel(ideModule.data, data.getMcVersion(), taskName, data.getExtractSrgTaskOutput(), data.getClientMappings())
+        val modelData = ForgeGradleIntellijModel(ideModule.data, data.getMcVersion(), taskName, data.getExtractSrgTaskOutput(), data.getExtractSrgTaskInputs(), data.getClientMappings())
         ideModule.createChild(ForgeGradleIntellijModel.KEY, modelData)
         ParchmentMappings.invalidateHints()
 
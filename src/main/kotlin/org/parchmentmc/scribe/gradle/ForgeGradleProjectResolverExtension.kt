@@ -23,14 +23,18 @@
 
 package org.parchmentmc.scribe.gradle
 
+import com.intellij.openapi.application.ApplicationManager
+import com.intellij.openapi.diagnostic.Logger
 import com.intellij.openapi.externalSystem.model.DataNode
 import com.intellij.openapi.externalSystem.model.project.ModuleData
 import com.intellij.openapi.externalSystem.model.project.ProjectData
-import com.intellij.util.containers.nullize
+import com.intellij.openapi.externalSystem.task.TaskCallback
+import com.intellij.openapi.project.Project
 import net.minecraftforge.srgutils.MinecraftVersion
 import org.gradle.tooling.model.idea.IdeaModule
 import org.jetbrains.plugins.gradle.service.project.AbstractProjectResolverExtension
-import org.parchmentmc.scribe.util.runGradleTask
+import org.parchmentmc.scribe.ParchmentMappings
+import org.parchmentmc.scribe.util.runGradleTaskWithCallback
 import java.nio.file.Paths
 
 class ForgeGradleProjectResolverExtension : AbstractProjectResolverExtension() {
@@ -41,29 +45,54 @@ class ForgeGradleProjectResolverExtension : AbstractProjectResolverExtension() {
     @Suppress("UnstableApiUsage")
     override fun resolveFinished(projectDataNode: DataNode<ProjectData>) {
         val project = resolverCtx.externalSystemTaskId.findProject() ?: return
-        val allTaskNames = findAllTaskNames(projectDataNode).nullize()?.distinct() ?: return
+        val fingerprints = ExtractSrgFingerprints.getInstance(project)
+        val models = findAllSrgModels(projectDataNode).distinctBy { it.extractSrgTaskName }
+        // Only run the tasks whose output is missing or whose inputs changed since we last ran them
+        val staleModels = models.filterNot(fingerprints::isUpToDate)
+        if (staleModels.isEmpty()) {
+            if (models.isNotEmpty()) {
+                ApplicationManager.getApplication().executeOnPooledThread { warmSrgMappings(project, models) }
+            }
+            return super.resolveFinished(projectDataNode)
+        }
 
         val projectDirPath = Paths.get(projectDataNode.data.linkedExternalProjectPath)
-        runGradleTask(project, projectDirPath) { settings ->
-            settings.taskNames = allTaskNames
-        }
+        runGradleTaskWithCallback(project, projectDirPath, { settings ->
+            settings.taskNames = staleModels.map { it.extractSrgTaskName }
+        }, object : TaskCallback {
+            override fun onSuccess() {
+                ApplicationManager.getApplication().executeOnPooledThread {
+                    staleModels.forEach(fingerprints::record)
+                    warmSrgMappings(project, models)
+                }
+            }
+
+            override fun onFailure() {
+                LOGGER.warn("Failed to run ${staleModels.joinToString { it.extractSrgTaskName }}, SRG names may be unavailable until the next sync")
+            }
+        })
 
         super.resolveFinished(projectDataNode)
     }
 
-    private fun findAllTaskNames(node: DataNode<*>): List<String> {
-        fun findAllTaskNames(node: DataNode<*>, taskNames: MutableList<String>) {
+    private fun warmSrgMappings(project: Project, models: List<ForgeGradleIntellijModel>) {
+        ParchmentMappings.getInstance(project).warmSrgMappings(models)
+        ApplicationManager.getApplication().invokeLater({ ParchmentMappings.invalidateHints() }, project.disposed)
+    }
+
+    private fun findAllSrgModels(node: DataNode<*>): List<ForgeGradleIntellijModel> {
+        fun findAllSrgModels(node: DataNode<*>, models: MutableList<ForgeGradleIntellijModel>) {
             val data = node.data
             if (data is ForgeGradleIntellijModel && MinecraftVersion.from(data.mcVersion) < MC_1_17) {
-                taskNames += data.extractSrgTaskName
+                models += data
             }
             for (child in node.children) {
-                findAllTaskNames(child, taskNames)
+                findAllSrgModels(child, models)
             }
         }
 
-        val res = arrayListOf<String>()
-        findAllTaskNames(node, res)
+        val res = arrayListOf<ForgeGradleIntellijModel>()
+        findAllSrgModels(node, res)
         return res
     }
 
@@ -74,6 +103,7 @@ class ForgeGradleProjectResolverExtension : AbstractProjectResolverExtension() {
     }
 
     companion object {
+        private val LOGGER = Logger.getInstance(ForgeGradleProjectResolverExtension::class.java)
         val MC_1_17 = MinecraftVersion.from("1.17")
     }
 }
\ No newline at end of file
@@ -0,0 +1,65 @@
+/*
+ * Scribe
+ * Copyright (C) 2023 ParchmentMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.parchmentmc.scribe.hints
+
+import com.intellij.openapi.editor.Document
+import com.intellij.openapi.editor.event.EditorFactoryEvent
+import com.intellij.openapi.editor.event.EditorFactoryListener
+import com.intellij.openapi.editor.event.VisibleAreaEvent
+import com.intellij.openapi.editor.event.VisibleAreaListener
+import com.intellij.openapi.util.Key
+import com.intellij.openapi.util.TextRange
+import java.awt.Point
+
+/**
+ * Remembers the visible text range of the last scrolled editor of each document, so [ParchmentFolding] can fold that
+ * part of large files first without touching the editor from a background thread.
+ */
+class FoldingViewportListener : EditorFactoryListener, VisibleAreaListener {
+    override fun editorCreated(event: EditorFactoryEvent) {
+        event.editor.scrollingModel.addVisibleAreaListener(this)
+    }
+
+    override fun editorReleased(event: EditorFactoryEvent) {
+        event.editor.scrollingModel.removeVisibleAreaListener(this)
+    }
+
+    override fun visibleAreaChanged(e: VisibleAreaEvent) {
+        val editor = e.editor
+        val area = e.newRectangle
+        if (area.isEmpty)
+            return
+
+        val start = editor.logicalPositionToOffset(editor.xyToLogicalPosition(Point(0, area.y)))
+        val end = editor.logicalPositionToOffset(editor.xyToLogicalPosition(Point(0, area.y + area.height)))
+        editor.document.putUserData(VISIBLE_RANGE_KEY, TextRange(start, maxOf(start, end)))
+    }
+
+    companion object {
+        private val VISIBLE_RANGE_KEY = Key.create<TextRange>("SCRIBE_VISIBLE_RANGE")
+
+        @JvmStatic
+        fun getVisibleRange(document: Document): TextRange? = document.getUserData(VISIBLE_RANGE_KEY)
+    }
+}
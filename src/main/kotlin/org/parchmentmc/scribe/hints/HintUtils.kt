@@ -28,12 +28,17 @@ import com.intellij.codeInsight.completion.JavaMethodCallElement
 import com.intellij.codeInsight.hints.HintWidthAdjustment
 import com.intellij.codeInsight.hints.InlayInfo
 import com.intellij.codeInsight.hints.isParameterHintsEnabledForLanguage
+import com.intellij.openapi.util.Key
 import com.intellij.openapi.util.registry.Registry
 import com.intellij.psi.*
 import com.intellij.psi.impl.source.resolve.graphInference.PsiPolyExpressionUtil
 import com.intellij.psi.impl.source.tree.java.PsiEmptyExpressionImpl
 import com.intellij.psi.impl.source.tree.java.PsiMethodCallExpressionImpl
 import com.intellij.psi.impl.source.tree.java.PsiNewExpressionImpl
+import com.intellij.psi.util.CachedValue
+import com.intellij.psi.util.CachedValueProvider
+import com.intellij.psi.util.CachedValuesManager
+import com.intellij.psi.util.PsiModificationTracker
 import com.intellij.psi.util.TypeConversionUtil
 import com.intellij.util.IncorrectOperationException
 import com.siyeh.ig.callMatcher.CallMatcher
@@ -41,8 +46,12 @@ import org.parchmentmc.feather.mapping.MappingDataContainer.MethodData
 import org.parchmentmc.scribe.ParchmentMappings
 import org.parchmentmc.scribe.util.jvmIndex
 import java.util.*
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicReference
 
 internal object JavaInlayHintsProvider {
+    private val HINT_CACHE_KEY = Key.create<CachedValue<AtomicReference<FileHintCache>>>("SCRIBE_HINT_CACHE")
+
     fun hints(callExpression: PsiCall): Set<InlayInfo> {
         if (JavaMethodCallElement.isCompletionMode(callExpression)) {
             val argumentList = callExpression.argumentList ?: return emptySet()
@@ -95,19 +104,66 @@ internal object JavaInlayHintsProvider {
 
         if (!isParameterHintsEnabledForLanguage(callExpression.language)) return emptySet()
 
+        // Hints for a method picked during completion are only shown until the next edit, so they aren't worth caching
+        val cache = callExpression.containingFile?.takeIf { CompletionMemory.getChosenMethod(callExpression) == null }?.hintCache
+            ?: return callHints(callExpression, ::lookupMethodData)
+        cache.hints[callExpression]?.let { return it }
+
+        val hints = callHints(callExpression, cache::methodData)
+        return cache.hints.putIfAbsent(callExpression, hints) ?: hints
+    }
+
+    private fun callHints(callExpression: PsiCall, methodData: (PsiMethod) -> MethodData?): Set<InlayInfo> {
         val resolveResult = callExpression.resolveMethodGenerics()
-        val hints = methodHints(callExpression, resolveResult)
+        val hints = methodHints(callExpression, resolveResult, methodData)
         if (hints.isNotEmpty()) return hints
 
         return when (callExpression) {
             is PsiMethodCallExpressionImpl ->
-                mergedHints(callExpression, callExpression.methodExpression.multiResolve(false))
+                mergedHints(callExpression, callExpression.methodExpression.multiResolve(false), methodData)
             is PsiNewExpressionImpl ->
-                mergedHints(callExpression, callExpression.constructorFakeReference.multiResolve(false))
+                mergedHints(callExpression, callExpression.constructorFakeReference.multiResolve(false), methodData)
             else -> emptySet()
         }
     }
 
+    private fun lookupMethodData(method: PsiMethod): MethodData? = ParchmentMappings.getInstance(method.project).getMethodData(method, false, true)
+
+    /**
+     * The hints of every call in a file, along with the mapping data of every method they resolve to so each distinct
+     * method is only looked up once. Dropped when the file, the Java structure of the project or the mappings change,
+     * or when the hint settings differ from the ones the hints were computed with.
+     */
+    private class FileHintCache(val settings: List<Boolean>) {
+        val hints = ConcurrentHashMap<PsiCall, Set<InlayInfo>>()
+        private val methods = ConcurrentHashMap<PsiMethod, Optional<MethodData>>()
+
+        fun methodData(method: PsiMethod): MethodData? = methods.getOrPut(method) { Optional.ofNullable(lookupMethodData(method)) }.orElse(null)
+    }
+
+    private val PsiFile.hintCache: FileHintCache
+        get() {
+            val settings = hintSettings()
+            val cache = CachedValuesManager.getCachedValue(this, HINT_CACHE_KEY) {
+                CachedValueProvider.Result.create(
+                    AtomicReference(FileHintCache(settings)),
+                    this,
+                    PsiModificationTracker.getInstance(project).javaStructureModificationTracker,
+                    ParchmentMappings.getInstance(project).getModificationTracker(this)
+                )
+            }
+            return cache.updateAndGet { if (it.settings == settings) it else FileHintCache(settings) }
+        }
+
+    private fun hintSettings(): List<Boolean> = InlayParamHints.getInstance().default.let {
+        listOf(
+            it.ignoreOneCharOneDigitHints.get(),
+            it.showForParamsWithSameType.get(),
+            it.showIfMethodNameContainsParameterName.get(),
+            it.isShowHintWhenExpressionTypeIsClear.get()
+        )
+    }
+
     private fun createHintWithComma(parameterName: String, offset: Int): InlayInfo {
         return InlayInfo(",$parameterName", offset, false, false, true,
             HintWidthAdjustment(", ", parameterName, 1)
@@ -115,10 +171,11 @@ internal object JavaInlayHintsProvider {
     }
 
     private fun mergedHints(callExpression: PsiCallExpression,
-                            results: Array<out ResolveResult>): Set<InlayInfo> {
+                            results: Array<out ResolveResult>,
+                            methodData: (PsiMethod) -> MethodData?): Set<InlayInfo> {
         val resultSet = results
             .filter { it.element != null }
-            .map { methodHints(callExpression, it) }
+            .map { methodHints(callExpression, it, methodData) }
 
         if (resultSet.isEmpty()) return emptySet()
         if (resultSet.size == 1) {
@@ -127,8 +184,7 @@ internal object JavaInlayHintsProvider {
 
         val chosenMethod: PsiMethod? = CompletionMemory.getChosenMethod(callExpression)
         if (chosenMethod != null) {
-            val callInfo = callInfo(callExpression, chosenMethod, ParchmentMappings.getInstance(callExpression.project)
-                .getMethodData(chosenMethod, false, true))
+            val callInfo = callInfo(callExpression, chosenMethod, methodData(chosenMethod))
             return hintSet(callInfo, PsiSubstitutor.EMPTY)
         }
 
@@ -138,12 +194,12 @@ internal object JavaInlayHintsProvider {
             .toSet()
     }
 
-    private fun methodHints(callExpression: PsiCall, resolveResult: ResolveResult): Set<InlayInfo> {
+    private fun methodHints(callExpression: PsiCall, resolveResult: ResolveResult, methodData: (PsiMethod) -> MethodData?): Set<InlayInfo> {
         val element = resolveResult.element
         val substitutor = (resolveResult as? JavaResolveResult)?.substitutor ?: PsiSubstitutor.EMPTY
 
         if (element is PsiMethod) {
-            val data = ParchmentMappings.getInstance(element.project).getMethodData(element, false, true)
+            val data = methodData(element)
             if (isMethodToShow(element, data)) {
                 val info = callInfo(callExpression, element, data)
                 if (isCallInfoToShow(info)) {
@@ -23,51 +23,41 @@
 
 package org.parchmentmc.scribe.hints
 
-import com.intellij.codeInsight.hints.InlayHintsCollector
-import com.intellij.codeInsight.hints.InlayHintsSink
-import com.intellij.codeInsight.hints.presentation.PresentationFactory
-import com.intellij.openapi.editor.Editor
-import com.intellij.openapi.editor.impl.EditorImpl
+import com.intellij.codeInsight.hints.declarative.InlayTreeSink
+import com.intellij.codeInsight.hints.declarative.InlineInlayPosition
+import com.intellij.codeInsight.hints.declarative.SharedBypassCollector
 import com.intellij.psi.PsiElement
-import com.intellij.psi.impl.source.PsiMethodImpl
-import com.intellij.psi.impl.source.PsiParameterImpl
+import com.intellij.psi.PsiParameter
+import com.intellij.psi.PsiParameterListOwner
 import com.intellij.refactoring.suggested.startOffset
+import org.parchmentmc.feather.mapping.MappingDataContainer
 import org.parchmentmc.scribe.ParchmentMappings
 import org.parchmentmc.scribe.settings.ParchmentProjectSettings
+import org.parchmentmc.scribe.util.jvmIndex
+import java.util.Optional
 
 @Suppress("UnstableApiUsage")
-class ParchmentHintCollector(editor: Editor) : InlayHintsCollector {
-    private val factory = PresentationFactory(editor as EditorImpl)
+class ParchmentHintCollector : SharedBypassCollector {
+    // A collector only lives for a single pass, so this can't go stale
+    private val methodData = HashMap<PsiParameterListOwner, Optional<MappingDataContainer.MethodData>>()
 
-    override fun collect(element: PsiElement, editor: Editor, sink: InlayHintsSink): Boolean {
+    override fun collectFromElement(element: PsiElement, sink: InlayTreeSink) {
+        if (element !is PsiParameter || !element.isPhysical)
+            return
         val project = element.project
         if (!ParchmentProjectSettings.getInstance(project).displayHints)
-            return true
+            return
 
-        when (element) {
-            is PsiParameterImpl -> {
-                val mapped = ParchmentMappings.getInstance(project).getParameterMapping(element, searchSupers = true) ?: return true
-                if (element.name == mapped/* || element.name == "p${mapped.capitalize()}"*/) return true
-                val hint = factory.roundWithBackgroundAndSmallInset(factory.text("$mapped:"))
+        val owner = element.declarationScope as? PsiParameterListOwner ?: return
+        val data = methodData.getOrPut(owner) {
+            Optional.ofNullable(ParchmentMappings.getInstance(project).getMethodData(owner, searchSupers = true))
+        }.orElse(null) ?: return
+        val mapped = data.getParameter(element.jvmIndex)?.name ?: return
+        if (element.name == mapped) return
+        val identifier = element.nameIdentifier ?: return
 
-                sink.addInlineElement(
-                    element.nameIdentifier.startOffset,
-                    relatesToPrecedingText = false, presentation = hint, placeAtTheEndOfLine = false
-                )
-            }
-            is PsiMethodImpl -> {
-                // if (element.docComment != null)
-                //     return true
-                // val methodJavadoc = ParchmentMappings.getMethodJavadoc(element)?.split("\n")?.joinToString("\n* ", prefix = "/**\n", postfix = "\n*/") ?: return true
-                // val psiDocComment = JavaPsiFacade.getElementFactory(element.getProject()).createDocCommentFromText(methodJavadoc)
-                //
-                // val elementCopy = ChangeUtil.copyToElement(psiDocComment)
-                // val anchor = element.firstChild
-                //
-                // element.addBefore(psiDocComment, anchor)
-            }
+        sink.addPresentation(InlineInlayPosition(identifier.startOffset, relatedToPrevious = false), tooltip = null, hasBackground = true) {
+            text("$mapped:")
         }
-
-        return true
     }
 }
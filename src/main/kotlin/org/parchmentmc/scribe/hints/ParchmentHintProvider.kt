@@ -23,37 +23,16 @@
 
 package org.parchmentmc.scribe.hints
 
-import com.intellij.codeInsight.hints.ChangeListener
-import com.intellij.codeInsight.hints.ImmediateConfigurable
-import com.intellij.codeInsight.hints.InlayHintsCollector
-import com.intellij.codeInsight.hints.InlayHintsProvider
-import com.intellij.codeInsight.hints.InlayHintsSink
-import com.intellij.codeInsight.hints.NoSettings
-import com.intellij.codeInsight.hints.SettingsKey
-import com.intellij.lang.Language
-import com.intellij.lang.java.JavaLanguage
+import com.intellij.codeInsight.hints.declarative.InlayHintsCollector
+import com.intellij.codeInsight.hints.declarative.InlayHintsProvider
 import com.intellij.openapi.editor.Editor
 import com.intellij.psi.PsiFile
-import javax.swing.JComponent
-import javax.swing.JPanel
 
+/**
+ * Shows the Parchment name of each parameter whose name differs from it. Hints are collected by the declarative
+ * inlay pass, off the EDT, and the platform keeps and diffs the resulting presentations itself.
+ */
 @Suppress("UnstableApiUsage")
-class ParchmentHintProvider : InlayHintsProvider<NoSettings> {
-    override val name = "Parchment mapping suggestions"
-    override val key = SettingsKey<NoSettings>("parchmentNoSettings")
-    override val previewText: String? = null
-
-    override fun createConfigurable(settings: NoSettings): ImmediateConfigurable = object : ImmediateConfigurable {
-        override fun createComponent(listener: ChangeListener): JComponent = JPanel()
-    }
-
-    override fun createSettings(): NoSettings = NoSettings()
-
-    override fun getCollectorFor(file: PsiFile, editor: Editor, settings: NoSettings, sink: InlayHintsSink): InlayHintsCollector {
-        return ParchmentHintCollector(editor)
-    }
-
-    override fun isLanguageSupported(language: Language): Boolean {
-        return language is JavaLanguage
-    }
+class ParchmentHintProvider : InlayHintsProvider {
+    override fun createCollector(file: PsiFile, editor: Editor): InlayHintsCollector = ParchmentHintCollector()
 }
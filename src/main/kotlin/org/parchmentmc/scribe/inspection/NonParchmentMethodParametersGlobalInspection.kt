@@ -0,0 +1,68 @@
+/*
+ * Scribe
+ * Copyright (C) 2023 ParchmentMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.parchmentmc.scribe.inspection
+
+import com.intellij.codeInspection.GlobalInspectionContext
+import com.intellij.codeInspection.GlobalSimpleInspectionTool
+import com.intellij.codeInspection.InspectionManager
+import com.intellij.codeInspection.ProblemDescriptionsProcessor
+import com.intellij.codeInspection.ProblemsHolder
+import com.intellij.psi.JavaRecursiveElementWalkingVisitor
+import com.intellij.psi.PsiFile
+import com.intellij.psi.PsiJavaFile
+import com.intellij.psi.PsiMethod
+import org.parchmentmc.scribe.ParchmentMappings
+
+/**
+ * Batch variant of [NonParchmentMethodParametersInspection] for "Inspect Code". Files are checked concurrently by the
+ * platform, and methods without parameter data for their name in their class or any of its super types are skipped
+ * without a lookup. Unlike the local inspection, this also skips methods which have mapping data but no parameter
+ * entries.
+ */
+class NonParchmentMethodParametersGlobalInspection : GlobalSimpleInspectionTool() {
+    override fun getStaticDescription(): String = "Reports methods whose parameters are not using Parchment names, across the whole inspected scope"
+
+    override fun checkFile(
+        file: PsiFile, manager: InspectionManager, problemsHolder: ProblemsHolder, globalContext: GlobalInspectionContext,
+        problemDescriptionsProcessor: ProblemDescriptionsProcessor
+    ) {
+        if (file !is PsiJavaFile)
+            return
+        val mappings = ParchmentMappings.getInstance(file.project)
+
+        file.accept(object : JavaRecursiveElementWalkingVisitor() {
+            override fun visitMethod(method: PsiMethod) {
+                super.visitMethod(method)
+                if (method.parameterList.isEmpty || !mappings.mayHaveParameterData(method))
+                    return
+                if (NonParchmentMethodParametersInspection.isMismatched(mappings.getMethodData(method, searchSupers = true), method.parameterList)) {
+                    problemsHolder.registerProblem(
+                        method.nameIdentifier ?: method, "Method parameters are not using Parchment names",
+                        NonParchmentMethodParametersInspection.FIX, NonParchmentMethodParametersInspection.FILE_FIX
+                    )
+                }
+            }
+        })
+    }
+}
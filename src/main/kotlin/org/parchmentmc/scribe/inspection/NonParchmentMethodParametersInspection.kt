@@ -27,14 +27,9 @@ import com.intellij.codeInspection.LocalQuickFixAndIntentionActionOnPsiElement
 import com.intellij.codeInspection.ProblemDescriptor
 import com.intellij.openapi.project.DumbService
 import com.intellij.openapi.project.Project
-import com.intellij.psi.PsiElement
 import com.intellij.psi.PsiMethod
 import com.intellij.psi.PsiParameterList
-import com.intellij.psi.PsiVariable
-import com.intellij.refactoring.RefactoringFactory
-import com.intellij.refactoring.rename.PsiElementRenameHandler
-import com.intellij.refactoring.rename.RenameProcessor
-import com.intellij.refactoring.rename.RenamePsiElementProcessor
+import com.intellij.psi.util.PsiTreeUtil
 import com.siyeh.ig.BaseInspection
 import com.siyeh.ig.BaseInspectionVisitor
 import com.siyeh.ig.InspectionGadgetsFix
@@ -58,8 +53,8 @@ class NonParchmentMethodParametersInspection : BaseInspection() {
 
     override fun buildErrorString(vararg infos: Any?): String = staticDescription
 
-    override fun buildFix(vararg infos: Any?): InspectionGadgetsFix {
-        return FIX
+    override fun buildFixes(vararg infos: Any?): Array<InspectionGadgetsFix> {
+        return arrayOf(FIX, FILE_FIX)
     }
 
     companion object {
@@ -67,7 +62,19 @@ class NonParchmentMethodParametersInspection : BaseInspection() {
             override fun getFamilyName(): String = "Remap method parameters to Parchment"
 
             override fun doFix(project: Project, descriptor: ProblemDescriptor) {
-                remapMethodParameters(descriptor.psiElement as? PsiMethod ?: return, project)
+                remapMethodParameters(PsiTreeUtil.getParentOfType(descriptor.psiElement, PsiMethod::class.java, false) ?: return, project)
+            }
+        }
+
+        val FILE_FIX: InspectionGadgetsFix = object : InspectionGadgetsFix() {
+            override fun getFamilyName(): String = "Remap all method parameters in file to Parchment"
+
+            override fun doFix(project: Project, descriptor: ProblemDescriptor) {
+                val file = descriptor.psiElement?.containingFile ?: return
+                val methods = PsiTreeUtil.findChildrenOfType(file, PsiMethod::class.java)
+                DumbService.getInstance(project).smartInvokeLater {
+                    ParchmentParameterRenamer(project).rename(methods)
+                }
             }
         }
 
@@ -76,18 +83,8 @@ class NonParchmentMethodParametersInspection : BaseInspection() {
         }
 
         fun remapMethodParameters(method: PsiMethod, project: Project = method.project) {
-            val methodData = ParchmentMappings.getInstance(project).getMethodData(method, searchSupers = true) ?: return
-            val parameters = method.parameterList.parameters
-
             DumbService.getInstance(project).smartInvokeLater {
-                parameters.forEachIndexed { index, parameter ->
-                    val paramName = methodData.getParameter(parameter.jvmIndex)?.name ?: return@forEachIndexed
-                    (parameters.getOrNull(index) as? PsiVariable)?.let {
-                        val factory = RefactoringFactory.getInstance(project)
-                        val renameRefactoring = factory.createRename(it, paramName, false, false)
-                        renameRefactoring.run()
-                    }
-                }
+                ParchmentParameterRenamer(project).rename(listOf(method))
             }
         }
     }
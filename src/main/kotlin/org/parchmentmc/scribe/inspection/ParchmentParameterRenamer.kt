@@ -0,0 +1,224 @@
+/*
+ * Scribe
+ * Copyright (C) 2023 ParchmentMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.parchmentmc.scribe.inspection
+
+import com.intellij.concurrency.JobLauncher
+import com.intellij.notification.NotificationGroupManager
+import com.intellij.notification.NotificationType
+import com.intellij.openapi.application.ReadAction
+import com.intellij.openapi.command.WriteCommandAction
+import com.intellij.openapi.progress.ProgressIndicator
+import com.intellij.openapi.progress.ProgressManager
+import com.intellij.openapi.project.Project
+import com.intellij.psi.JavaRecursiveElementWalkingVisitor
+import com.intellij.psi.PsiMethod
+import com.intellij.psi.PsiMethodCallExpression
+import com.intellij.psi.PsiNameHelper
+import com.intellij.psi.PsiParameter
+import com.intellij.psi.PsiReference
+import com.intellij.psi.PsiReferenceExpression
+import com.intellij.psi.PsiVariable
+import com.intellij.psi.search.LocalSearchScope
+import com.intellij.psi.search.searches.ReferencesSearch
+import org.parchmentmc.feather.mapping.MappingDataContainer
+import org.parchmentmc.scribe.ParchmentMappings
+import org.parchmentmc.scribe.util.jvmIndex
+
+/**
+ * Renames the parameters of any number of methods to their Parchment names in one go. Renames are collected and their
+ * usages searched up front, in parallel read actions, then everything is applied in a single write command so that the
+ * whole batch is one undo step. Renames which would clash with another variable, with the name another parameter of the
+ * same method ends up with, or capture a reference are skipped and reported.
+ */
+class ParchmentParameterRenamer(private val project: Project) {
+    class ParameterRename(val parameter: PsiParameter, val newName: String) {
+        internal var usages: Collection<PsiReference> = emptyList()
+    }
+
+    /**
+     * Must be called on the EDT outside of a write action.
+     *
+     * @return the number of renamed parameters
+     */
+    fun rename(methods: Collection<PsiMethod>, commandName: String = "Remap Method Parameters to Parchment"): Int {
+        val skipped = ArrayList<ParameterRename>()
+        val renames = if (methods.size == 1) {
+            ReadAction.compute<List<ParameterRename>, RuntimeException> {
+                collectRenames(methods, skipped).onEach { it.usages = findUsages(it) }
+            }
+        } else {
+            ProgressManager.getInstance().runProcessWithProgressSynchronously<List<ParameterRename>, RuntimeException>({
+                val renames = ReadAction.compute<List<ParameterRename>, RuntimeException> { collectRenames(methods, skipped) }
+                findUsages(renames, ProgressManager.getInstance().progressIndicator)
+                renames
+            }, "Searching for parameter usages", true, project)
+        }
+        if (skipped.isNotEmpty())
+            reportSkipped(skipped)
+        if (renames.isEmpty())
+            return 0
+
+        WriteCommandAction.writeCommandAction(project).withName(commandName).run<RuntimeException> { apply(renames) }
+        return renames.size
+    }
+
+    /**
+     * Finds the usages of each rename in parallel read actions. Must not be called in a read action.
+     */
+    fun findUsages(renames: List<ParameterRename>, indicator: ProgressIndicator?) {
+        JobLauncher.getInstance().invokeConcurrentlyUnderProgress(renames, indicator) { rename ->
+            rename.usages = ReadAction.compute<Collection<PsiReference>, RuntimeException> {
+                if (rename.parameter.isValid) findUsages(rename) else emptyList()
+            }
+            true
+        }
+    }
+
+    /**
+     * Applies renames whose usages were already searched. Must be called in a write action; renames of parameters
+     * which were removed in the meantime are dropped.
+     */
+    fun apply(renames: Collection<ParameterRename>) {
+        for (rename in renames) {
+            if (!rename.parameter.isValid)
+                continue
+            rename.usages.filter { it.element.isValid }.forEach { it.handleElementRename(rename.newName) }
+            rename.parameter.setName(rename.newName)
+        }
+    }
+
+    /**
+     * Collects the parameters of [methods] which don't use their Parchment name yet. Renames which would conflict are
+     * added to [skipped] instead. Must be called in a read action.
+     */
+    fun collectRenames(methods: Collection<PsiMethod>, skipped: MutableCollection<ParameterRename>? = null): List<ParameterRename> {
+        val mappings = ParchmentMappings.getInstance(project)
+        val renames = ArrayList<ParameterRename>()
+
+        for (method in methods) {
+            ProgressManager.checkCanceled()
+            if (!method.isValid)
+                continue
+            val methodData = mappings.getMethodData(method, searchSupers = true) ?: continue
+            collectRenames(method, methodData, renames, skipped)
+        }
+        return renames
+    }
+
+    /**
+     * Same as above for methods whose mapping data was already looked up.
+     */
+    fun collectRenames(methods: Map<PsiMethod, MappingDataContainer.MethodData>, skipped: MutableCollection<ParameterRename>? = null): List<ParameterRename> {
+        val renames = ArrayList<ParameterRename>()
+        for ((method, methodData) in methods) {
+            ProgressManager.checkCanceled()
+            if (method.isValid)
+                collectRenames(method, methodData, renames, skipped)
+        }
+        return renames
+    }
+
+    /**
+     * Every name is checked against the names the other parameters end up with, so two parameters never get the same
+     * name and a parameter is never renamed to the name another one keeps. Skipping a rename keeps the old name, which
+     * may conflict with another rename in turn, so this is repeated until no more renames are skipped.
+     */
+    private fun collectRenames(
+        method: PsiMethod, methodData: MappingDataContainer.MethodData, renames: MutableList<ParameterRename>, skipped: MutableCollection<ParameterRename>?
+    ) {
+        val nameHelper = PsiNameHelper.getInstance(project)
+        val parameters = method.parameterList.parameters
+        val candidates = parameters.mapNotNull { parameter ->
+            val newName = methodData.getParameter(parameter.jvmIndex)?.name
+            if (newName == null || newName == parameter.name || !nameHelper.isIdentifier(newName)) null else ParameterRename(parameter, newName)
+        }
+        if (candidates.isEmpty())
+            return
+
+        val conflicting = candidates.filterTo(LinkedHashSet()) { hasConflict(method, it.parameter, it.newName) }
+        do {
+            val renamed = candidates.filterNot(conflicting::contains).mapTo(HashSet()) { it.parameter }
+            val assigned = parameters.filterNot(renamed::contains).mapTo(HashSet()) { it.name }
+            val newConflicts = candidates.filter { it.parameter in renamed && !assigned.add(it.newName) }
+            conflicting += newConflicts
+        } while (newConflicts.isNotEmpty())
+
+        candidates.filterNotTo(renames, conflicting::contains)
+        skipped?.addAll(conflicting)
+    }
+
+    private fun reportSkipped(skipped: Collection<ParameterRename>) {
+        val entries = ReadAction.compute<List<String>, RuntimeException> { skipped.map(::describe) }
+        NotificationGroupManager.getInstance().getNotificationGroup(NOTIFICATION_GROUP).createNotification(
+            "Skipped ${skipped.size} conflicting parameter renames",
+            entries.joinToString("<br>"),
+            NotificationType.WARNING
+        ).notify(project)
+    }
+
+    private fun findUsages(rename: ParameterRename): Collection<PsiReference> {
+        val scope = rename.parameter.declarationScope
+        return ReferencesSearch.search(rename.parameter, LocalSearchScope(scope)).findAll()
+    }
+
+    /**
+     * `true` if a local variable in [method] already uses [newName], or if the method refers to something else by that
+     * name which the renamed parameter would shadow. Clashes with the parameters of [method] itself depend on which of
+     * them are renamed, so those are left to the caller.
+     */
+    private fun hasConflict(method: PsiMethod, parameter: PsiParameter, newName: String): Boolean {
+        val parameters = method.parameterList
+        var conflict = false
+        method.accept(object : JavaRecursiveElementWalkingVisitor() {
+            override fun visitVariable(variable: PsiVariable) {
+                if (variable != parameter && variable.name == newName && variable.parent != parameters) {
+                    conflict = true
+                    stopWalking()
+                    return
+                }
+                super.visitVariable(variable)
+            }
+
+            override fun visitReferenceExpression(expression: PsiReferenceExpression) {
+                if (!expression.isQualified && expression.referenceName == newName && expression.parent !is PsiMethodCallExpression &&
+                    expression.resolve().let { it !is PsiParameter || it.parent != parameters }) {
+                    conflict = true
+                    stopWalking()
+                    return
+                }
+                super.visitReferenceExpression(expression)
+            }
+        })
+        return conflict
+    }
+
+    companion object {
+        const val NOTIFICATION_GROUP = "Parchment"
+
+        fun describe(rename: ParameterRename): String {
+            val method = rename.parameter.declarationScope as? PsiMethod
+            return "${method?.containingClass?.name ?: "?"}.${method?.name ?: "?"}: ${rename.parameter.name} \u2192 ${rename.newName}"
+        }
+    }
+}
@@ -34,13 +34,9 @@ class ParchmentFileListener : FileDocumentManagerListener {
             if (mappings.modified) {
                 mappings.modified = false
 
-                if (!mappings.mappingsMutable)
-                    return
-
-                val outputPath = mappings.getMappingsPathAsPath() ?: return
-                val data = mappings.mappingContainer ?: return
-
-                EnigmaFormattedExplodedIO.INSTANCE.write(data, outputPath)
+                mappings.forEachModifiedContainer { outputPath, data ->
+                    EnigmaFormattedExplodedIO.INSTANCE.write(data, outputPath)
+                }
             }
         }
     }
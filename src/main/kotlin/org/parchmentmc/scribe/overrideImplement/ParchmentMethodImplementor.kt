@@ -30,6 +30,9 @@ import com.intellij.codeInsight.generation.GenerateMembersUtil
 import com.intellij.codeInsight.generation.GenerationInfo
 import com.intellij.codeInsight.generation.OverrideImplementUtil
 import com.intellij.codeInsight.generation.PsiGenerationInfo
+import com.intellij.openapi.command.CommandProcessor
+import com.intellij.openapi.project.DumbService
+import com.intellij.openapi.util.Key
 import com.intellij.psi.PsiAnnotationMethod
 import com.intellij.psi.PsiClass
 import com.intellij.psi.PsiElement
@@ -38,23 +41,38 @@ import com.intellij.psi.PsiMethod
 import com.intellij.psi.PsiParameter
 import com.intellij.psi.PsiSubstitutor
 import com.intellij.psi.PsiVariable
+import com.intellij.psi.util.PsiModificationTracker
 import com.intellij.psi.util.PsiTreeUtil
 import com.intellij.psi.util.PsiUtil
 import com.intellij.psi.util.TypeConversionUtil
 import com.intellij.util.Consumer
+import org.parchmentmc.feather.mapping.MappingDataContainer
 import org.parchmentmc.scribe.ParchmentMappings
-import org.parchmentmc.scribe.inspection.NonParchmentMethodParametersInspection
+import org.parchmentmc.scribe.inspection.ParchmentParameterRenamer
 import org.parchmentmc.scribe.settings.ParchmentProjectSettings
 import org.parchmentmc.scribe.util.jvmIndex
+import java.util.Optional
 
 class ParchmentMethodImplementor : MethodImplementor {
+    /**
+     * State shared by all prototypes created in one Override/Implement session, i.e. in the same command while the PSI
+     * is unchanged: a single copy of the target file to add prototypes to, and the mapping lookups done so far. Kept on
+     * the target file, so it is dropped along with it.
+     */
+    private class Session(val command: Any?, val modificationCount: Long, val inClass: PsiClass, val copyClass: PsiElement) {
+        val methodData = HashMap<PsiMethod, Optional<MappingDataContainer.MethodData>>()
+    }
+
     override fun getMethodsToImplement(aClass: PsiClass?): Array<PsiMethod> = PsiMethod.EMPTY_ARRAY
 
     override fun createImplementationPrototypes(inClass: PsiClass, method: PsiMethod): Array<PsiMethod> {
         val project = method.project
         if (!ParchmentProjectSettings.getInstance(project).remapParameters || method.parameterList.parameters.isEmpty())
             return PsiMethod.EMPTY_ARRAY
-        val methodData = ParchmentMappings.getInstance(project).getMethodData(method, searchSupers = true) ?: return PsiMethod.EMPTY_ARRAY
+        val session = getSession(inClass) ?: return PsiMethod.EMPTY_ARRAY
+        val methodData = session.methodData.getOrPut(method) {
+            Optional.ofNullable(ParchmentMappings.getInstance(project).getMethodData(method, searchSupers = true))
+        }.orElse(null) ?: return PsiMethod.EMPTY_ARRAY
 
         val containingClass = method.containingClass ?: return PsiMethod.EMPTY_ARRAY
         val substitutor = if (inClass.isInheritor(containingClass, true)) {
@@ -63,8 +81,7 @@ class ParchmentMethodImplementor : MethodImplementor {
             PsiSubstitutor.EMPTY
         }
         val overridenMethod = GenerateMembersUtil.substituteGenericMethod(method, substitutor, inClass)
-        val copyClass = copyClass(inClass) ?: return PsiMethod.EMPTY_ARRAY
-        val result = copyClass.add(overridenMethod) as PsiMethod
+        val result = session.copyClass.add(overridenMethod) as PsiMethod
 
         method.parameterList.parameters.filterIsInstance<PsiParameter>().forEachIndexed { index, parameter ->
             val paramName = methodData.getParameter(parameter.jvmIndex)?.name ?: return@forEachIndexed
@@ -86,6 +103,18 @@ class ParchmentMethodImplementor : MethodImplementor {
         return arrayOf(result)
     }
 
+    private fun getSession(inClass: PsiClass): Session? {
+        val file = inClass.containingFile ?: return null
+        val command = CommandProcessor.getInstance().currentCommand
+        val modificationCount = PsiModificationTracker.getInstance(inClass.project).modificationCount
+        file.getUserData(SESSION_KEY)
+            ?.takeIf { it.command === command && it.modificationCount == modificationCount && it.inClass == inClass && it.copyClass.isValid }
+            ?.let { return it }
+
+        val copyClass = copyClass(inClass) ?: return null
+        return Session(command, modificationCount, inClass, copyClass).also { file.putUserData(SESSION_KEY, it) }
+    }
+
     private fun copyClass(aClass: PsiClass): PsiElement? {
         val marker = Any()
         PsiTreeUtil.mark(aClass, marker)
@@ -102,11 +131,29 @@ class ParchmentMethodImplementor : MethodImplementor {
                 super.insert(targetClass, anchor, before)
 
                 val insertedMethod = this.psiMember ?: return
-                NonParchmentMethodParametersInspection.remapMethodParameters(insertedMethod)
+                val project = insertedMethod.project
+                project.getUserData(INSERTED_METHODS_KEY)?.let {
+                    it += insertedMethod
+                    return
+                }
+
+                project.putUserData(INSERTED_METHODS_KEY, arrayListOf(insertedMethod))
+                DumbService.getInstance(project).smartInvokeLater {
+                    val methods = project.getUserData(INSERTED_METHODS_KEY).orEmpty().filter { it.isValid }
+                    project.putUserData(INSERTED_METHODS_KEY, null)
+                    if (methods.isNotEmpty())
+                        ParchmentParameterRenamer(project).rename(methods)
+                }
             }
         }
     }
 
     override fun createDecorator(targetClass: PsiClass, baseMethod: PsiMethod, toCopyJavaDoc: Boolean, insertOverrideIfPossible: Boolean): Consumer<PsiMethod> =
         OverrideImplementUtil.createDefaultDecorator(targetClass, baseMethod, toCopyJavaDoc, insertOverrideIfPossible)
-}
\ No newline at end of file
+
+    private companion object {
+        private val SESSION_KEY = Key.create<Session>("SCRIBE_IMPLEMENT_SESSION")
+        // Constructors inserted since the last rename, remapped together once insertion is done
+        private val INSERTED_METHODS_KEY = Key.create<MutableList<PsiMethod>>("SCRIBE_INSERTED_METHODS")
+    }
+}
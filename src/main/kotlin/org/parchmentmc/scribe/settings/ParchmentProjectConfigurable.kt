@@ -74,6 +74,13 @@ class ParchmentProjectConfigurable(private val project: Project) : BoundConfigur
                 mappingsPathField.text = ParchmentProjectSettings.getInstance(ProjectManager.getInstance().defaultProject).mappingsPath
             }.comment("<p>Resets this project's mappings path to the default mappings path.</p>")
         }
+        row("Per-version Mappings Paths:") {
+            textArea()
+                .bindText({ settings.versionMappingsPaths.entries.joinToString("\n") { "${it.key}=${it.value}" } }, { settings.versionMappingsPaths = parseVersionPaths(it) })
+                .rows(3)
+                .columns(COLUMNS_LARGE)
+                .comment("<p>One <code>version=path</code> entry per line. Modules of a listed Minecraft version use that path instead of the one above, and mappings of versions not used by any open module are never loaded.</p>")
+        }
         row {
             checkBox("Display Parchment Hints")
                 .bindSelected(settings::displayHints)
@@ -95,6 +102,11 @@ class ParchmentProjectConfigurable(private val project: Project) : BoundConfigur
                 .bindSelected(settings::frozenFolding)
                 .comment("If true, folded parameters cannot be expanded")
         }
+        row {
+            checkBox("Fold visible code first")
+                .bindSelected(settings::viewportFolding)
+                .comment("In large files, fold the visible part of the editor immediately and the rest of the file in the background")
+        }
     }
 
     override fun apply() {
@@ -109,9 +121,17 @@ class ParchmentProjectConfigurable(private val project: Project) : BoundConfigur
             }
         }
 
+        val oldVersionPaths = settings.versionMappingsPaths.toMap()
         super.apply()
+        if (settings.versionMappingsPaths != oldVersionPaths)
+            mappings.resetVersionContainers()
     }
 
+    private fun parseVersionPaths(text: String): MutableMap<String, String> = text.lineSequence()
+        .map { it.split('=', limit = 2) }
+        .filter { it.size == 2 && it[0].isNotBlank() && it[1].isNotBlank() }
+        .associateTo(mutableMapOf()) { it[0].trim() to it[1].trim() }
+
     companion object {
         const val ID = "Settings.Parchment"
     }
@@ -34,9 +34,11 @@ import com.intellij.openapi.project.ProjectManager
 class ParchmentProjectSettings : PersistentStateComponent<ParchmentProjectSettings.State> {
     data class State(
         var mappingsPath: String = "",
+        var versionMappingsPaths: MutableMap<String, String> = mutableMapOf(),
         var displayHints: Boolean = true,
         var fold: Boolean = true,
         var frozenFolding: Boolean = true,
+        var viewportFolding: Boolean = true,
         var remapParameters: Boolean = true
     )
 
@@ -62,6 +64,15 @@ class ParchmentProjectSettings : PersistentStateComponent<ParchmentProjectSettin
             state.mappingsPath = value
         }
 
+    /**
+     * Mappings paths for specific Minecraft versions, used instead of [mappingsPath] for modules of that version
+     */
+    var versionMappingsPaths: MutableMap<String, String>
+        get() = state.versionMappingsPaths
+        set(value) {
+            state.versionMappingsPaths = value
+        }
+
     var displayHints: Boolean
         get() = state.displayHints
         set(value) {
@@ -86,6 +97,15 @@ class ParchmentProjectSettings : PersistentStateComponent<ParchmentProjectSettin
             state.frozenFolding = value
         }
 
+    /**
+     * Whether large files fold the visible part of the editor first and the rest in the background
+     */
+    var viewportFolding: Boolean
+        get() = state.viewportFolding
+        set(value) {
+            state.viewportFolding = value
+        }
+
     companion object {
         fun getInstance(project: Project): ParchmentProjectSettings = project.getService(ParchmentProjectSettings::class.java)
     }
@@ -0,0 +1,105 @@
+/*
+ * Scribe
+ * Copyright (C) 2023 ParchmentMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.parchmentmc.scribe.util
+
+import com.intellij.ide.highlighter.JavaClassFileType
+import com.intellij.openapi.diagnostic.Logger
+import com.intellij.openapi.vfs.JarFileSystem
+import com.intellij.openapi.vfs.VfsUtilCore
+import com.intellij.util.indexing.DefaultFileTypeSpecificInputFilter
+import com.intellij.util.indexing.FileBasedIndex
+import com.intellij.util.indexing.FileContent
+import com.intellij.util.indexing.ID
+import com.intellij.util.indexing.IndexedFile
+import com.intellij.util.indexing.SingleEntryFileBasedIndexExtension
+import com.intellij.util.indexing.SingleEntryIndexer
+import com.intellij.util.io.DataExternalizer
+import com.intellij.util.io.DataInputOutputUtil
+import com.intellij.util.io.IOUtil
+import java.io.DataInput
+import java.io.DataOutput
+
+/**
+ * Indexes the [ClassBytecodeInfo] of the class files in Minecraft library jars, so their classes are parsed once per jar
+ * by the platform instead of on every query. Other class files (the JDK, other libraries, compiler output) are not worth
+ * the index size and are read on demand instead.
+ */
+class ClassBytecodeIndex : SingleEntryFileBasedIndexExtension<ClassBytecodeInfo>() {
+    override fun getName(): ID<Int, ClassBytecodeInfo> = NAME
+
+    override fun getIndexer(): SingleEntryIndexer<ClassBytecodeInfo> = object : SingleEntryIndexer<ClassBytecodeInfo>(false) {
+        override fun computeValue(inputData: FileContent): ClassBytecodeInfo? {
+            return try {
+                ClassBytecodeInfo.read(inputData.content)
+            } catch (e: Exception) {
+                LOGGER.debug("Failed to index class file ${inputData.file}", e)
+                null
+            }
+        }
+    }
+
+    override fun getValueExternalizer(): DataExternalizer<ClassBytecodeInfo> = Externalizer
+
+    override fun getVersion(): Int = 3
+
+    override fun getInputFilter(): FileBasedIndex.InputFilter = InputFilter
+
+    private object InputFilter : DefaultFileTypeSpecificInputFilter(JavaClassFileType.INSTANCE), FileBasedIndex.ProjectSpecificInputFilter {
+        override fun acceptInput(file: IndexedFile): Boolean {
+            val root = VfsUtilCore.getRootFile(file.file)
+            return root.fileSystem is JarFileSystem && root.findFileByRelativePath(MINECRAFT_PACKAGE) != null
+        }
+    }
+
+    private object Externalizer : DataExternalizer<ClassBytecodeInfo> {
+        override fun save(out: DataOutput, value: ClassBytecodeInfo) {
+            out.writeBoolean(value.superName != null)
+            value.superName?.let { IOUtil.writeUTF(out, it) }
+            DataInputOutputUtil.writeINT(out, value.interfaces.size)
+            value.interfaces.forEach { IOUtil.writeUTF(out, it) }
+            DataInputOutputUtil.writeINT(out, value.methods.size)
+            for (method in value.methods) {
+                IOUtil.writeUTF(out, method.name)
+                IOUtil.writeUTF(out, method.descriptor)
+                DataInputOutputUtil.writeINT(out, method.access)
+            }
+        }
+
+        override fun read(`in`: DataInput): ClassBytecodeInfo {
+            val superName = if (`in`.readBoolean()) IOUtil.readUTF(`in`) else null
+            val interfaces = List(DataInputOutputUtil.readINT(`in`)) { IOUtil.readUTF(`in`) }
+            val methods = List(DataInputOutputUtil.readINT(`in`)) {
+                BytecodeMethod(IOUtil.readUTF(`in`), IOUtil.readUTF(`in`), DataInputOutputUtil.readINT(`in`))
+            }
+            return ClassBytecodeInfo(superName, interfaces, methods)
+        }
+    }
+
+    companion object {
+        private val LOGGER = Logger.getInstance(ClassBytecodeIndex::class.java)
+        private const val MINECRAFT_PACKAGE = "net/minecraft"
+
+        val NAME = ID.create<Int, ClassBytecodeInfo>("scribe.class.bytecode")
+    }
+}
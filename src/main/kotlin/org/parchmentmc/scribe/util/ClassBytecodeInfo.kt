@@ -0,0 +1,116 @@
+/*
+ * Scribe
+ * Copyright (C) 2023 ParchmentMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.parchmentmc.scribe.util
+
+import com.intellij.openapi.diagnostic.Logger
+import com.intellij.openapi.project.DumbService
+import com.intellij.openapi.project.IndexNotReadyException
+import com.intellij.openapi.project.Project
+import com.intellij.openapi.util.Key
+import com.intellij.openapi.vfs.VirtualFile
+import com.intellij.util.indexing.FileBasedIndex
+import org.objectweb.asm.ClassReader
+import org.objectweb.asm.ClassVisitor
+import org.objectweb.asm.MethodVisitor
+import org.objectweb.asm.Opcodes
+
+private val LOGGER = Logger.getInstance("ScribeClassBytecodeInfo")
+private val BYTECODE_INFO_KEY = Key.create<StampedBytecodeInfo>("SCRIBE_BYTECODE_INFO")
+
+data class BytecodeMethod(val name: String, val descriptor: String, val access: Int) {
+    val isStatic: Boolean
+        get() = access and Opcodes.ACC_STATIC != 0
+}
+
+/**
+ * The parts of a class file Scribe needs, without any code, frames or debug info: its super types and its method table,
+ * in class file order.
+ */
+class ClassBytecodeInfo(val superName: String?, val interfaces: List<String>, val methods: List<BytecodeMethod>) {
+    val superTypes: List<String>
+        get() = listOfNotNull(superName) + interfaces
+
+    /**
+     * The synthetic `lambda$` methods by name.
+     */
+    val lambdaMethods: Map<String, BytecodeMethod> by lazy { methods.filter { it.name.startsWith(LAMBDA_PREFIX) }.associateBy { it.name } }
+
+    fun findMethods(name: String): List<BytecodeMethod> = methods.filter { it.name == name }
+
+    companion object {
+        fun read(bytes: ByteArray): ClassBytecodeInfo {
+            var superClass: String? = null
+            var superInterfaces = emptyList<String>()
+            val methods = ArrayList<BytecodeMethod>()
+            ClassReader(bytes).accept(object : ClassVisitor(Opcodes.ASM9) {
+                override fun visit(version: Int, access: Int, name: String, signature: String?, superName: String?, interfaces: Array<out String>?) {
+                    superClass = superName
+                    superInterfaces = interfaces?.toList() ?: emptyList()
+                }
+
+                override fun visitMethod(access: Int, name: String, descriptor: String, signature: String?, exceptions: Array<out String>?): MethodVisitor? {
+                    methods += BytecodeMethod(name, descriptor, access)
+                    return null
+                }
+            }, ClassReader.SKIP_CODE or ClassReader.SKIP_DEBUG or ClassReader.SKIP_FRAMES)
+            methods.trimToSize()
+            return ClassBytecodeInfo(superClass, superInterfaces, methods)
+        }
+    }
+}
+
+private class StampedBytecodeInfo(val modificationStamp: Long, val info: ClassBytecodeInfo)
+
+/**
+ * The bytecode info of this class file. Indexed class files (those in Minecraft libraries) are served from [ClassBytecodeIndex]
+ * while indices are ready, anything else is read from the VFS and cached on the file until its modification stamp changes.
+ */
+fun VirtualFile.getBytecodeInfo(project: Project): ClassBytecodeInfo? {
+    if (!DumbService.isDumb(project)) {
+        try {
+            FileBasedIndex.getInstance().getSingleEntryIndexData(ClassBytecodeIndex.NAME, this, project)?.let { return it }
+        } catch (e: IndexNotReadyException) {
+            // Fall back to reading the file
+        }
+    }
+    return bytecodeInfo
+}
+
+/**
+ * The bytecode info of this class file, cached on the file until its VFS modification stamp changes.
+ */
+val VirtualFile.bytecodeInfo: ClassBytecodeInfo?
+    get() {
+        val stamp = modificationStamp
+        getUserData(BYTECODE_INFO_KEY)?.takeIf { it.modificationStamp == stamp }?.let { return it.info }
+
+        val info = try {
+            ClassBytecodeInfo.read(contentsToByteArray())
+        } catch (e: Exception) {
+            LOGGER.debug("Failed to read class file $this", e)
+            return null
+        }
+        putUserData(BYTECODE_INFO_KEY, StampedBytecodeInfo(stamp, info))
+        return info
+    }
@@ -0,0 +1,104 @@
+/*
+ * Scribe
+ * Copyright (C) 2023 ParchmentMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.parchmentmc.scribe.util
+
+import com.intellij.openapi.components.Service
+import com.intellij.openapi.project.Project
+import com.intellij.openapi.util.Key
+import com.intellij.openapi.util.SimpleModificationTracker
+import com.intellij.openapi.util.UserDataHolderEx
+import com.intellij.psi.PsiElement
+import com.intellij.psi.PsiFile
+import com.intellij.psi.PsiLambdaExpression
+import com.intellij.psi.PsiTreeChangeAdapter
+import com.intellij.psi.PsiTreeChangeEvent
+import com.intellij.psi.util.PsiTreeUtil
+
+/**
+ * Tracks, per file, changes which may renumber the synthetic lambda methods of its classes, i.e. lambdas being added,
+ * removed or moved. Edits which don't touch any lambda leave the tracker alone. Only [LambdaStructureListener] bumps
+ * the trackers, so they only move on PSI writes.
+ */
+@Service
+class LambdaStructureTracker {
+    // Changes we can't attribute to a file
+    private val globalTracker = SimpleModificationTracker()
+
+    fun getTrackers(file: PsiFile): Array<Any> = arrayOf(getFileTracker(file), globalTracker)
+
+    internal fun onChange(file: PsiFile?, changed: PsiElement?): Boolean {
+        if (changed == null || !(changed is PsiLambdaExpression || PsiTreeUtil.findChildOfType(changed, PsiLambdaExpression::class.java) != null))
+            return false
+
+        (file?.let(::getFileTracker) ?: globalTracker).incModificationCount()
+        return true
+    }
+
+    internal fun onFileReloaded(file: PsiFile?) {
+        (file?.let(::getFileTracker) ?: globalTracker).incModificationCount()
+    }
+
+    private fun getFileTracker(file: PsiFile): SimpleModificationTracker =
+        file.getUserData(TRACKER_KEY) ?: (file as UserDataHolderEx).putUserDataIfAbsent(TRACKER_KEY, SimpleModificationTracker())
+
+    companion object {
+        private val TRACKER_KEY = Key.create<SimpleModificationTracker>("SCRIBE_LAMBDA_STRUCTURE_TRACKER")
+
+        fun getInstance(project: Project): LambdaStructureTracker = project.getService(LambdaStructureTracker::class.java)
+    }
+}
+
+/**
+ * Feeds [LambdaStructureTracker] from the detailed PSI events. The `childrenChanged` events sent alongside them carry no
+ * detail of their own and are ignored; files whose PSI is dropped and rebuilt wholesale are reported as unloaded.
+ */
+class LambdaStructureListener : PsiTreeChangeAdapter() {
+    override fun childAdded(event: PsiTreeChangeEvent) {
+        tracker(event)?.onChange(event.file, event.child)
+    }
+
+    override fun childRemoved(event: PsiTreeChangeEvent) {
+        tracker(event)?.onChange(event.file, event.child)
+    }
+
+    override fun childMoved(event: PsiTreeChangeEvent) {
+        tracker(event)?.onChange(event.file, event.child)
+    }
+
+    override fun childReplaced(event: PsiTreeChangeEvent) {
+        val tracker = tracker(event) ?: return
+        if (!tracker.onChange(event.file, event.oldChild))
+            tracker.onChange(event.file, event.newChild)
+    }
+
+    override fun propertyChanged(event: PsiTreeChangeEvent) {
+        if (event.propertyName == PsiTreeChangeEvent.PROP_UNLOADED_PSI)
+            tracker(event)?.onFileReloaded(event.file ?: event.element as? PsiFile)
+    }
+
+    private fun tracker(event: PsiTreeChangeEvent): LambdaStructureTracker? {
+        val project = (event.file ?: event.parent ?: event.element)?.project ?: return null
+        return LambdaStructureTracker.getInstance(project)
+    }
+}
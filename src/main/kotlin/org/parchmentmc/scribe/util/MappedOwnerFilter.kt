@@ -0,0 +1,71 @@
+/*
+ * Scribe
+ * Copyright (C) 2023 ParchmentMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.parchmentmc.scribe.util
+
+import net.minecraftforge.srgutils.IMappingFile
+import org.parchmentmc.feather.mapping.MappingDataContainer
+
+/**
+ * The outermost classes which have any data in a mapping container, and the methods with parameter data keyed by
+ * owner and name, all in the names of the workspace. Checking an element against it rules out JDK and library classes,
+ * and methods which can't have mapped parameters, before any descriptor is built or PSI is walked.
+ */
+internal class MappedOwnerFilter private constructor(
+    val stamp: Long,
+    private val owners: Set<String>,
+    private val parameterMethods: Set<String>
+) {
+    fun mayContain(internalName: String): Boolean = internalName.substringBefore('$') in owners
+
+    fun mayHaveParameters(owner: String, methodName: String): Boolean = key(owner, methodName) in parameterMethods
+
+    companion object {
+        private fun key(owner: String, methodName: String) = "$owner.$methodName"
+
+        /**
+         * Builds the filter of [container], whose names are Mojang names. In SRG named workspaces, [srgToMoj] maps the
+         * workspace names to those, and the filter is built in SRG names so that elements can be checked as they are.
+         */
+        fun of(container: MappingDataContainer, stamp: Long, srgToMoj: IMappingFile?): MappedOwnerFilter {
+            val srgClasses = srgToMoj?.classes?.associateBy { it.mapped }.orEmpty()
+            val owners = HashSet<String>()
+            val parameterMethods = HashSet<String>()
+            for (classData in container.classes) {
+                val srgClass = srgClasses[classData.name]
+                val owner = srgClass?.original ?: classData.name
+                owners += owner.substringBefore('$')
+
+                val methods = classData.methods.filter { it.parameters.isNotEmpty() }
+                if (methods.isEmpty())
+                    continue
+                // Several SRG methods may share a Mojang name, each of them may be the one with data
+                val srgMethodNames = srgClass?.methods?.groupBy({ it.mapped }, { it.original }).orEmpty()
+                for (methodData in methods) {
+                    srgMethodNames[methodData.name].orEmpty().ifEmpty { listOf(methodData.name) }.mapTo(parameterMethods) { key(owner, it) }
+                }
+            }
+            return MappedOwnerFilter(stamp, owners, parameterMethods)
+        }
+    }
+}
@@ -10,12 +10,17 @@
 
 package org.parchmentmc.scribe.util
 
+import com.intellij.openapi.util.Key
 import com.intellij.psi.PsiClass
 import com.intellij.psi.PsiField
 import com.intellij.psi.PsiLambdaExpression
 import com.intellij.psi.PsiMethod
+import com.intellij.psi.util.CachedValue
 import java.io.Serializable
 
+private val METHOD_REFERENCE_KEY = Key.create<CachedValue<MemberReference>>("SCRIBE_METHOD_REFERENCE")
+private val FIELD_REFERENCE_KEY = Key.create<CachedValue<MemberReference>>("SCRIBE_FIELD_REFERENCE")
+
 /**
  * Represents a reference to a class member (a method or a field). It may
  * resolve to multiple members if [matchAll] is set or if the member is
@@ -45,7 +50,7 @@ val PsiMethod.memberReference
     get() = MemberReference(internalName, descriptor)
 
 val PsiMethod.qualifiedMemberReference
-    get() = MemberReference(internalName, descriptor, containingClass?.fullQualifiedName)
+    get() = cachedSignatureValue(METHOD_REFERENCE_KEY) { MemberReference(internalName, descriptor, containingClass?.fullQualifiedName) }
 
 fun PsiMethod.getQualifiedMemberReference(owner: PsiClass): MemberReference {
     return MemberReference(internalName, descriptor, owner.fullQualifiedName)
@@ -74,7 +79,7 @@ val PsiField.simpleQualifiedMemberReference
     get() = MemberReference(name, null, containingClass!!.fullQualifiedName)
 
 val PsiField.qualifiedMemberReference
-    get() = MemberReference(name, descriptor, containingClass!!.fullQualifiedName)
+    get() = cachedSignatureValue(FIELD_REFERENCE_KEY) { MemberReference(name, descriptor, containingClass!!.fullQualifiedName) }
 
 fun PsiField.getQualifiedMemberReference(owner: PsiClass): MemberReference {
     return MemberReference(name, descriptor, owner.fullQualifiedName)
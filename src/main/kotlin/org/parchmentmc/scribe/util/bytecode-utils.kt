@@ -13,7 +13,9 @@ package org.parchmentmc.scribe.util
 import com.intellij.openapi.diagnostic.Logger
 import com.intellij.openapi.project.DumbService
 import com.intellij.openapi.project.IndexNotReadyException
+import com.intellij.openapi.roots.ProjectRootManager
 import com.intellij.openapi.util.Key
+import com.intellij.openapi.vfs.VirtualFileManager
 import com.intellij.psi.JavaRecursiveElementWalkingVisitor
 import com.intellij.psi.LambdaUtil
 import com.intellij.psi.PsiAnonymousClass
@@ -21,6 +23,8 @@ import com.intellij.psi.PsiArrayType
 import com.intellij.psi.PsiCapturedWildcardType
 import com.intellij.psi.PsiClass
 import com.intellij.psi.PsiClassType
+import com.intellij.psi.PsiCompiledElement
+import com.intellij.psi.PsiElement
 import com.intellij.psi.PsiField
 import com.intellij.psi.PsiLambdaExpression
 import com.intellij.psi.PsiMember
@@ -30,20 +34,39 @@ import com.intellij.psi.PsiPrimitiveType
 import com.intellij.psi.PsiType
 import com.intellij.psi.PsiTypes
 import com.intellij.psi.PsiWildcardType
+import com.intellij.psi.util.CachedValue
 import com.intellij.psi.util.CachedValueProvider
 import com.intellij.psi.util.CachedValuesManager
-import com.intellij.psi.util.ParameterizedCachedValue
+import com.intellij.psi.util.PsiModificationTracker
 import com.intellij.psi.util.PsiTreeUtil
 import com.intellij.psi.util.TypeConversionUtil
 import it.unimi.dsi.fastutil.objects.Object2IntMap
 import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap
-import org.objectweb.asm.Opcodes
-import org.objectweb.asm.tree.MethodNode
-import java.util.WeakHashMap
 
 private const val INTERNAL_CONSTRUCTOR_NAME = "<init>"
+internal const val LAMBDA_PREFIX = "lambda$"
 private val LOGGER = Logger.getInstance("ScribeBytecodeUtil")
-private val LAMBDA_NAME_KEY = Key.create<ParameterizedCachedValue<Object2IntMap<PsiLambdaExpression>, PsiClass>>("SCRIBE_LAMBDA_NAME")
+private val METHOD_DESCRIPTOR_KEY = Key.create<CachedValue<String?>>("SCRIBE_METHOD_DESCRIPTOR")
+private val FIELD_DESCRIPTOR_KEY = Key.create<CachedValue<String?>>("SCRIBE_FIELD_DESCRIPTOR")
+private val LAMBDA_NAME_KEY = Key.create<CachedValue<Object2IntMap<PsiLambdaExpression>>>("SCRIBE_LAMBDA_NAME")
+private val CONSTRUCTOR_NODE_KEY = Key.create<CachedValue<BytecodeMethod?>>("SCRIBE_CONSTRUCTOR_NODE")
+
+/**
+ * Caches a value derived from the signature of this member until the Java structure of the project or its roots change.
+ * Non-physical members (light elements, copies) can be mutated freely and are never cached.
+ */
+internal fun <T> PsiMember.cachedSignatureValue(key: Key<CachedValue<T>>, compute: () -> T): T {
+    if (!isPhysical)
+        return compute()
+
+    return CachedValuesManager.getCachedValue(this, key) {
+        CachedValueProvider.Result.create(
+            compute(),
+            PsiModificationTracker.getInstance(project).javaStructureModificationTracker,
+            ProjectRootManager.getInstance(project)
+        )
+    }
+}
 
 // Type
 
@@ -121,8 +144,8 @@ val PsiMethod.internalName: String
     get() = if (isConstructor) INTERNAL_CONSTRUCTOR_NAME else name
 
 val PsiMethod.descriptor: String?
-    get() {
-        return try {
+    get() = cachedSignatureValue(METHOD_DESCRIPTOR_KEY) {
+        findConstructorNode()?.descriptor ?: try {
             appendDescriptor(StringBuilder()).toString()
         } catch (e: ClassNameResolutionFailedException) {
             null
@@ -138,63 +161,87 @@ private fun PsiMethod.appendDescriptor(builder: StringBuilder): StringBuilder {
     } else if (this.hasSyntheticOuterClassParameter()) {
         this.containingClass?.containingClass?.appendInternalName(builder.append('L'))?.append(';')
     }
+    appendParameterDescriptors(builder)
+    builder.append(')')
+    return (returnType ?: PsiTypes.voidType()).appendDescriptor(builder)
+}
+
+@Throws(ClassNameResolutionFailedException::class)
+private fun PsiMethod.appendParameterDescriptors(builder: StringBuilder): StringBuilder {
     for (parameter in parameterList.parameters) {
         parameter.type.appendDescriptor(builder)
     }
-    builder.append(')')
-    return (returnType ?: PsiTypes.voidType()).appendDescriptor(builder)
+    return builder
+}
+
+/**
+ * The method of the class file matching this compiled constructor, whose descriptor includes the synthetic parameters
+ * javac added, so they don't have to be guessed. Source constructors are left to the guesses, as their class files may
+ * be missing or outdated. If several constructors end with the same parameters, the one with the fewest extra ones wins.
+ */
+internal fun PsiMethod.findConstructorNode(): BytecodeMethod? {
+    if (!isConstructor || this !is PsiCompiledElement)
+        return null
+
+    return cachedSignatureValue(CONSTRUCTOR_NODE_KEY) {
+        val parameters = try {
+            appendParameterDescriptors(StringBuilder()).append(')').toString()
+        } catch (e: ClassNameResolutionFailedException) {
+            return@cachedSignatureValue null
+        }
+        containingClass?.bytecodeInfo?.findMethods(INTERNAL_CONSTRUCTOR_NAME)
+            ?.filter { it.descriptor.substringBefore(')').plus(')').endsWith(parameters) }
+            ?.minByOrNull { it.descriptor.length }
+    }
 }
 
 // Lambda
 
 val PsiLambdaExpression.internalName: String?
-    get() = this.internalIndex?.let { "lambda$" + this.suffix + '$' + it }
+    get() = this.internalIndex?.let { LAMBDA_PREFIX + this.suffix + '$' + it }
 
 val PsiLambdaExpression.internalIndex: Int?
     get() {
         val upper = PsiTreeUtil.getParentOfType(this, PsiClass::class.java) ?: return null
-        var value = upper.getUserData(LAMBDA_NAME_KEY)
-
-        if (value == null) {
-            value = CachedValuesManager.getManager(upper.project).createParameterizedCachedValue({
-                val map = Object2IntOpenHashMap<PsiLambdaExpression>()
-                it.accept(object : JavaRecursiveElementWalkingVisitor() {
-                    var index = 0
-
-                    override fun visitLambdaExpression(expression: PsiLambdaExpression) {
-                        map[expression] = index
-
-                        var parent = PsiTreeUtil.getParentOfType(expression, PsiLambdaExpression::class.java, PsiField::class.java, PsiMethod::class.java, PsiClass::class.java)
-                        if (parent is PsiLambdaExpression) {
-                            // This is a lambda inside a lambda, and it seems javac resolves the index of nested lambdas before an outer one
-                            var nestAmount = 0
-                            while (parent is PsiLambdaExpression) {
-                                nestAmount++
-                                map.computeIntIfPresent(parent) { _, v -> v + 1 }
-                                parent = PsiTreeUtil.getParentOfType(parent, PsiLambdaExpression::class.java, PsiField::class.java, PsiMethod::class.java, PsiClass::class.java)
-                            }
-                            map[expression] = index - nestAmount
-                        }
-
-                        index++
-
-                        super.visitLambdaExpression(expression)
-                    }
-
-                    override fun visitClass(aClass: PsiClass) {
-                        if (aClass === it) {
-                            super.visitClass(aClass)
-                        }
-                    }
-                })
-                CachedValueProvider.Result.create(map, it)
-            }, false)
-            upper.putUserData(LAMBDA_NAME_KEY, value)
-        }
+        val index = upper.lambdaIndices.getInt(this)
+        if (index >= 0 || !isValid)
+            return index.takeIf { it >= 0 }
 
-        return value.getValue(upper).getInt(this)
+        // A lambda we don't know about (e.g. in a non-physical copy) is numbered from a fresh, uncached table
+        return upper.computeLambdaIndices().getInt(this).takeIf { it >= 0 }
+    }
+
+/**
+ * The index javac gives each lambda declared directly in this class. Nested lambdas are numbered before the lambda
+ * containing them, which is exactly a post-order numbering, so a single walk over the class assigns every index as
+ * each lambda is left. The table only goes stale when lambdas are added, removed or moved.
+ */
+private val PsiClass.lambdaIndices: Object2IntMap<PsiLambdaExpression>
+    get() = CachedValuesManager.getCachedValue(this, LAMBDA_NAME_KEY) {
+        CachedValueProvider.Result.create(computeLambdaIndices(), *LambdaStructureTracker.getInstance(project).getTrackers(containingFile))
     }
 
+private fun PsiClass.computeLambdaIndices(): Object2IntMap<PsiLambdaExpression> {
+    val root = this
+    val map = Object2IntOpenHashMap<PsiLambdaExpression>()
+    map.defaultReturnValue(-1)
+    root.accept(object : JavaRecursiveElementWalkingVisitor() {
+        override fun visitClass(aClass: PsiClass) {
+            // Lambdas in nested and anonymous classes belong to those classes
+            if (aClass === root) {
+                super.visitClass(aClass)
+            }
+        }
+
+        override fun elementFinished(element: PsiElement) {
+            if (element is PsiLambdaExpression) {
+                map[element] = map.size
+            }
+        }
+    })
+    return map
+}
+
 val PsiLambdaExpression.suffix: String
     get() {
         val member: PsiMember? = PsiTreeUtil.getParentOfType(this, PsiMethod::class.java, PsiClass::class.java, PsiField::class.java)
@@ -219,23 +266,38 @@ val PsiLambdaExpression.descriptor: String?
         val targetMethodNode = this.findMethodNode() ?: return basicDescriptor
 
         // We didn't find the right method if the basic descriptor doesn't match at the end
-        if (!targetMethodNode.desc.endsWith(basicDescriptor.substring(1)))
+        if (!targetMethodNode.descriptor.endsWith(basicDescriptor.substring(1)))
             return basicDescriptor
 
-        return targetMethodNode.desc
+        return targetMethodNode.descriptor
     }
 
 val PsiLambdaExpression.isStatic: Boolean?
-    get() = findMethodNode()?.access?.let { it.and(Opcodes.ACC_STATIC) == Opcodes.ACC_STATIC }
+    get() = findMethodNode()?.isStatic
 
-private val lambdaMethodNodeCache: MutableMap<PsiLambdaExpression, MethodNode?> = WeakHashMap()
+fun PsiLambdaExpression.findMethodNode(): BytecodeMethod? {
+    val internalName = this.internalName ?: return null
 
-fun PsiLambdaExpression.findMethodNode(): MethodNode? = lambdaMethodNodeCache.computeIfAbsent(this) {
-    val internalName = this.internalName ?: return@computeIfAbsent null
-
-    return@computeIfAbsent findContainingClass()?.findClassNode()?.methods?.find { it.name == internalName }
+    return findContainingClass()?.bytecodeInfo?.lambdaMethods?.get(internalName)
 }
 
+/**
+ * The bytecode info of the class file of this class (served by [ClassBytecodeIndex] for Minecraft classes), read once
+ * and recomputed only when that file changes.
+ */
+val PsiClass.bytecodeInfo: ClassBytecodeInfo?
+    get() = CachedValuesManager.getCachedValue(this) {
+        val classFile = findClassFile()
+
+        CachedValueProvider.Result.create(
+            classFile?.getBytecodeInfo(project),
+            // Without a class file yet, wait for one to be created
+            classFile ?: VirtualFileManager.VFS_STRUCTURE_MODIFICATIONS,
+            PsiModificationTracker.getInstance(project).javaStructureModificationTracker,
+            ProjectRootManager.getInstance(project)
+        )
+    }
+
 val PsiLambdaExpression.basicDescriptor: String?
     get() {
         return try {
@@ -259,8 +321,8 @@ private fun PsiLambdaExpression.appendDescriptor(builder: StringBuilder): String
 // Field
 
 val PsiField.descriptor: String?
-    get() {
-        return try {
+    get() = cachedSignatureValue(FIELD_DESCRIPTOR_KEY) {
+        try {
             appendDescriptor(StringBuilder()).toString()
         } catch (e: ClassNameResolutionFailedException) {
             null
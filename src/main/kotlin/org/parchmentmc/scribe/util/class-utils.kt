@@ -10,8 +10,15 @@
 
 package org.parchmentmc.scribe.util
 
+import com.intellij.ide.highlighter.JavaClassFileType
 import com.intellij.navigation.AnonymousElementProvider
 import com.intellij.openapi.project.Project
+import com.intellij.openapi.roots.CompilerModuleExtension
+import com.intellij.openapi.roots.LibraryOrderEntry
+import com.intellij.openapi.roots.OrderRootType
+import com.intellij.openapi.roots.ProjectFileIndex
+import com.intellij.openapi.util.Key
+import com.intellij.openapi.vfs.VirtualFile
 import com.intellij.psi.JavaPsiFacade
 import com.intellij.psi.PsiClass
 import com.intellij.psi.PsiClassType
@@ -22,15 +29,12 @@ import com.intellij.psi.PsiParameterList
 import com.intellij.psi.PsiPrimitiveType
 import com.intellij.psi.PsiTypeParameter
 import com.intellij.psi.search.GlobalSearchScope
-import org.objectweb.asm.ClassReader
-import org.objectweb.asm.tree.ClassNode
-import java.lang.reflect.Method
+import com.intellij.psi.util.CachedValue
+import com.intellij.psi.util.CachedValueProvider
+import com.intellij.psi.util.CachedValuesManager
+import com.intellij.psi.util.PsiModificationTracker
 
-private val LOAD_CLASS_FILE_BYTES: Method? = runCatching {
-    com.intellij.byteCodeViewer.ByteCodeViewerManager::class.java
-        .getDeclaredMethod("loadClassFileBytes", PsiClass::class.java)
-        .let { it.isAccessible = true; it }
-}.getOrNull()
+private val ANONYMOUS_INDICES_KEY = Key.create<CachedValue<Map<PsiElement, Int>>>("SCRIBE_ANONYMOUS_INDICES")
 
 // Type
 
@@ -51,13 +55,34 @@ val PsiClass.fullQualifiedName
         }
     }
 
-fun PsiClass.findClassBytes() = LOAD_CLASS_FILE_BYTES?.invoke(null, this) as? ByteArray
+/**
+ * Finds the class file for this class, either next to the class file it was loaded from, in the classes roots of
+ * the library its sources belong to, or in the compiler output of its module.
+ */
+fun PsiClass.findClassFile(): VirtualFile? {
+    val binaryName = fullQualifiedName ?: return null
+    val relativePath = binaryName.replace('.', '/') + ".class"
+    val file = containingFile?.originalFile?.virtualFile ?: return null
+
+    if (file.fileType == JavaClassFileType.INSTANCE) {
+        return file.parent?.findChild(relativePath.substringAfterLast('/'))
+    }
+
+    val fileIndex = ProjectFileIndex.getInstance(project)
+    if (fileIndex.isInLibrarySource(file)) {
+        for (orderEntry in fileIndex.getOrderEntriesForFile(file)) {
+            if (orderEntry !is LibraryOrderEntry)
+                continue
+            for (root in orderEntry.getRootFiles(OrderRootType.CLASSES)) {
+                root.findFileByRelativePath(relativePath)?.let { return it }
+            }
+        }
+        return null
+    }
 
-fun PsiClass.findClassNode(): ClassNode? {
-    val bytes = findClassBytes() ?: return null
-    val classNode = ClassNode()
-    ClassReader(bytes).accept(classNode, 0)
-    return classNode
+    val compilerExtension = fileIndex.getModuleForFile(file)?.let(CompilerModuleExtension::getInstance) ?: return null
+    val outputRoot = if (fileIndex.isInTestSourceContent(file)) compilerExtension.compilerOutputPathForTests else compilerExtension.compilerOutputPath
+    return outputRoot?.findFileByRelativePath(relativePath)
 }
 
 @Throws(ClassNameResolutionFailedException::class)
@@ -146,6 +171,8 @@ private fun PsiClass.findInnerClass(name: String): PsiClass? {
 
 @Throws(ClassNameResolutionFailedException::class)
 fun PsiElement.getAnonymousIndex(anonymousElement: PsiElement): Int {
+    anonymousIndices[anonymousElement]?.let { return it }
+
     // Attempt to find name for anonymous class
     for ((i, element) in anonymousElements.withIndex()) {
         if (element equivalentTo anonymousElement) {
@@ -156,6 +183,21 @@ fun PsiElement.getAnonymousIndex(anonymousElement: PsiElement): Int {
     throw ClassNameResolutionFailedException("Failed to determine anonymous class for $anonymousElement")
 }
 
+/**
+ * The 1-based index of each anonymous element directly inside this one, cached until the Java structure changes, which
+ * includes anonymous and local classes being added or removed in code blocks.
+ */
+private val PsiElement.anonymousIndices: Map<PsiElement, Int>
+    get() {
+        if (!isPhysical)
+            return emptyMap()
+
+        return CachedValuesManager.getCachedValue(this, ANONYMOUS_INDICES_KEY) {
+            val indices = anonymousElements.withIndex().associate { (i, element) -> element to i + 1 }
+            CachedValueProvider.Result.create(indices, PsiModificationTracker.getInstance(project).javaStructureModificationTracker)
+        }
+    }
+
 val PsiElement.anonymousElements: Array<PsiElement>
     get() {
         for (provider in AnonymousElementProvider.EP_NAME.extensionList) {
@@ -23,73 +23,98 @@
 
 package org.parchmentmc.scribe.util
 
+import com.google.common.cache.Cache
+import com.google.common.cache.CacheBuilder
 import com.intellij.psi.PsiLambdaExpression
 import com.intellij.psi.PsiMethod
 import com.intellij.psi.PsiModifier
 import com.intellij.psi.PsiParameter
 import org.objectweb.asm.Type
 
+private val SLOT_TABLES: Cache<String, JvmSlotTable> = CacheBuilder.newBuilder()
+    .maximumSize(8192)
+    .build()
+
+/**
+ * The local variable slot of every parameter in a method descriptor, as if the method were static, along with the inverse
+ * lookup from slot to parameter index. Tables are shared between all members with the same descriptor.
+ */
+internal class JvmSlotTable private constructor(private val slots: ByteArray, private val parameters: IntArray) {
+    val size: Int
+        get() = slots.size
+
+    fun slotOf(index: Int, isStatic: Boolean): Byte =
+        if (index in slots.indices) (slots[index] + if (isStatic) 0 else 1).toByte() else -1
+
+    fun indexOf(slot: Byte, isStatic: Boolean): Int {
+        val staticSlot = (slot.toInt() and 0xFF) - if (isStatic) 0 else 1
+        return if (staticSlot in parameters.indices) parameters[staticSlot] else -1
+    }
+
+    companion object {
+        fun of(descriptor: String): JvmSlotTable = SLOT_TABLES.get(descriptor) { parse(descriptor) }
+
+        private fun parse(descriptor: String): JvmSlotTable {
+            val end = descriptor.indexOf(')')
+            var i = descriptor.indexOf('(') + 1
+            val slots = ByteArray(maxOf(end - i, 0))
+            var count = 0
+            var slot = 0
+            while (i in 1 until end) {
+                slots[count++] = slot.toByte()
+                val start = i
+                while (descriptor[i] == '[' && i < end - 1) i++
+                if (descriptor[i] == 'L') {
+                    i = descriptor.indexOf(';', i)
+                    if (i < 0) break
+                }
+                slot += if (i == start && (descriptor[i] == 'D' || descriptor[i] == 'J')) 2 else 1
+                i++
+            }
+
+            val parameters = IntArray(minOf(slot, 256)) { -1 }
+            for (index in 0 until count) {
+                parameters[slots[index].toInt() and 0xFF] = index
+            }
+            return JvmSlotTable(slots.copyOf(count), parameters)
+        }
+    }
+}
+
 val PsiParameter.jvmIndex: Byte
     get() {
         return when (val declarationScope = this.declarationScope) {
             is PsiMethod -> {
                 val thisIndex = declarationScope.getParameterIndexOffset() + declarationScope.parameterList.getParameterIndex(this)
-                declarationScope.iterateJvmIndices { curIndex, curJvmIndex -> if (curIndex == thisIndex) curJvmIndex else null } ?: -1
+                declarationScope.slotTable?.slotOf(thisIndex, declarationScope.hasModifierProperty(PsiModifier.STATIC)) ?: -1
             }
             is PsiLambdaExpression -> {
                 val thisIndex = declarationScope.getParameterIndexOffset() + declarationScope.parameterList.getParameterIndex(this)
-                declarationScope.iterateJvmIndices { curIndex, curJvmIndex -> if (curIndex == thisIndex) curJvmIndex else null } ?: -1
+                declarationScope.slotTable?.slotOf(thisIndex, declarationScope.isStatic ?: true) ?: -1
             }
             else -> -1
         }
     }
 
 fun PsiMethod.getParameterByJvmIndex(jvmIndex: Byte): PsiParameter? {
-    val offset = this.getParameterIndexOffset()
-    return iterateJvmIndices { curIndex, curJvmIndex ->
-        if (curJvmIndex == jvmIndex) {
-            this.parameterList.getParameter(curIndex - offset)
-        } else null
-    }
+    val index = slotTable?.indexOf(jvmIndex, hasModifierProperty(PsiModifier.STATIC)) ?: return null
+    val parameterIndex = index - this.getParameterIndexOffset()
+    return if (index < 0 || parameterIndex < 0) null else this.parameterList.getParameter(parameterIndex)
 }
 
-private fun <T> PsiMethod.iterateJvmIndices(successFun: (Int, Byte) -> T?): T? {
-    return iterateJvmIndices<T>(hasModifierProperty(PsiModifier.STATIC), this.qualifiedMemberReference, successFun)
-}
+private val PsiMethod.slotTable: JvmSlotTable?
+    get() = this.qualifiedMemberReference.descriptor?.let(JvmSlotTable::of)
 
-private fun <T> PsiLambdaExpression.iterateJvmIndices(successFun: (Int, Byte) -> T?): T? {
-    return this.qualifiedMemberReference?.let { iterateJvmIndices<T>(this.isStatic ?: true, it, successFun) }
-}
+private val PsiLambdaExpression.slotTable: JvmSlotTable?
+    get() = this.qualifiedMemberReference?.descriptor?.let(JvmSlotTable::of)
 
-private fun <T> iterateJvmIndices(isStatic: Boolean, memberRef: MemberReference, successFun: (Int, Byte) -> T?): T? {
-    val params = memberRef.descriptor?.substringAfter('(')?.substringBefore(')') ?: return null
-
-    var i = 0
-    var curIndex = 0
-    var curJvmIndex: Byte = if (isStatic) 0 else 1
-    var isArray = false
-    while (i < params.length) {
-        successFun(curIndex, curJvmIndex)?.let { return it }
-        val c = params[i]
-        when (c) {
-            'D', 'J' -> if (!isArray) curJvmIndex++
-            'L' -> i = params.indexOf(';', startIndex = i) // i++ will add one to this
-        }
-        if (!isArray) {
-            curJvmIndex++
-            curIndex++
-        }
-        isArray = c == '['
-        i++
+fun PsiMethod.getParameterIndexOffset(): Int {
+    findConstructorNode()?.let { return Type.getArgumentTypes(it.descriptor).size - parameterList.parametersCount }
+    return when {
+        this.isEnumConstructor() -> 2
+        this.hasSyntheticOuterClassParameter() -> 1
+        else -> 0
     }
-
-    return null
-}
-
-fun PsiMethod.getParameterIndexOffset(): Int = when {
-    this.isEnumConstructor() -> 2
-    this.hasSyntheticOuterClassParameter() -> 1
-    else -> 0
 }
 
 fun PsiLambdaExpression.getParameterIndexOffset(): Int = Type.getArgumentsAndReturnSizes(this.descriptor).shr(2) - Type.getArgumentsAndReturnSizes(this.basicDescriptor).shr(2)
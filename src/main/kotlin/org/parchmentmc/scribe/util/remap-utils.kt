@@ -0,0 +1,63 @@
+/*
+ * Scribe
+ * Copyright (C) 2023 ParchmentMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.parchmentmc.scribe.util
+
+import com.intellij.openapi.util.Key
+import com.intellij.psi.PsiMethod
+import com.intellij.psi.util.CachedValue
+import com.intellij.psi.util.CachedValueProvider
+import com.intellij.psi.util.CachedValuesManager
+import com.intellij.psi.util.PsiModificationTracker
+import org.parchmentmc.scribe.ParchmentMappings
+import java.util.Optional
+
+private val REMAPPED_METHOD_KEY = Key.create<CachedValue<Optional<PsiMethod>>>("SCRIBE_REMAPPED_METHOD")
+private val ORIGINAL_METHOD_KEY = Key.create<PsiMethod>("SCRIBE_ORIGINAL_METHOD")
+
+/**
+ * A light copy of this method with its parameters renamed to their Parchment names (without javadoc), or `null` if
+ * the method has no mapping data. The copy is shared until the mappings or the Java structure of the project change.
+ */
+val PsiMethod.parchmentRemapped: PsiMethod?
+    get() {
+        // Copies resolve to the current copy of their original, which is themselves unless they went stale
+        getUserData(ORIGINAL_METHOD_KEY)?.let { return it.parchmentRemapped }
+
+        return CachedValuesManager.getCachedValue(this, REMAPPED_METHOD_KEY) {
+            val mappings = ParchmentMappings.getInstance(project)
+            val methodData = mappings.getMethodData(this, false, true)
+            val remapped = methodData?.let { copyFromParchment(it, false).apply { putUserData(ORIGINAL_METHOD_KEY, this@parchmentRemapped) } }
+            CachedValueProvider.Result.create(
+                Optional.ofNullable<PsiMethod>(remapped),
+                mappings.getModificationTracker(this),
+                PsiModificationTracker.getInstance(project).javaStructureModificationTracker
+            )
+        }.orElse(null)
+    }
+
+/**
+ * The method this was copied from by [parchmentRemapped], or this method itself if it is not such a copy.
+ */
+val PsiMethod.parchmentOriginal: PsiMethod
+    get() = getUserData(ORIGINAL_METHOD_KEY) ?: this
@@ -0,0 +1,151 @@
+/*
+ * Scribe
+ * Copyright (C) 2023 ParchmentMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.parchmentmc.scribe.validation
+
+import com.intellij.openapi.progress.ProgressIndicator
+import org.objectweb.asm.ClassReader
+import org.objectweb.asm.ClassVisitor
+import org.objectweb.asm.FieldVisitor
+import org.objectweb.asm.MethodVisitor
+import org.objectweb.asm.Opcodes
+import org.parchmentmc.feather.mapping.MappingDataContainer
+import org.parchmentmc.scribe.action.MapParameterAction
+import org.parchmentmc.scribe.util.JvmSlotTable
+import java.nio.file.Path
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.ForkJoinPool
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.zip.ZipEntry
+import java.util.zip.ZipFile
+
+/**
+ * Validates a mapping container against the (Mojang-named) Minecraft jar, checking every class in parallel.
+ * Issues are passed to the reporter as soon as they are found, possibly from multiple threads at once.
+ */
+class MappingValidator(private val container: MappingDataContainer, private val pool: ForkJoinPool = ForkJoinPool.commonPool()) {
+    fun validate(jar: Path, indicator: ProgressIndicator? = null, reporter: (ValidationIssue) -> Unit): Int {
+        val issueCount = AtomicInteger()
+        val report = { issue: ValidationIssue ->
+            issueCount.incrementAndGet()
+            reporter(issue)
+        }
+
+        ZipFile(jar.toFile()).use { zip ->
+            val entries = zip.entries().asSequence()
+                .filter { it.name.endsWith(".class") }
+                .associateBy { it.name.removeSuffix(".class") }
+            val classes = container.classes.toList()
+            val done = AtomicInteger()
+
+            try {
+                pool.submit(Runnable {
+                    classes.parallelStream().forEach { classData ->
+                        indicator?.checkCanceled()
+                        validateClass(zip, entries[classData.name], classData, report)
+                        indicator?.fraction = done.incrementAndGet().toDouble() / classes.size
+                    }
+                }).get()
+            } catch (e: ExecutionException) {
+                throw e.cause ?: e
+            }
+        }
+
+        return issueCount.get()
+    }
+
+    private fun validateClass(zip: ZipFile, entry: ZipEntry?, classData: MappingDataContainer.ClassData, report: (ValidationIssue) -> Unit) {
+        if (entry == null) {
+            report(ValidationIssue(ValidationIssue.Kind.MISSING_CLASS, classData.name, null, "Class does not exist"))
+            return
+        }
+
+        val members = zip.getInputStream(entry).use { ClassMembers.read(ClassReader(it)) }
+
+        for (fieldData in classData.fields) {
+            val descriptor = members.fields[fieldData.name]
+            if (descriptor == null || (fieldData.descriptor != null && fieldData.descriptor != descriptor)) {
+                report(ValidationIssue(ValidationIssue.Kind.MISSING_FIELD, classData.name, "${fieldData.name}:${fieldData.descriptor}", "Field does not exist"))
+            }
+        }
+
+        for (methodData in classData.methods) {
+            val member = methodData.name + methodData.descriptor
+            val access = members.methods[member]
+            if (access == null) {
+                report(ValidationIssue(ValidationIssue.Kind.MISSING_METHOD, classData.name, member, "Method does not exist"))
+                continue
+            }
+
+            val isStatic = access and Opcodes.ACC_STATIC != 0
+            val slotTable = JvmSlotTable.of(methodData.descriptor)
+            val seenNames = mutableSetOf<String>()
+            for (paramData in methodData.parameters) {
+                val index = paramData.index
+                if (slotTable.indexOf(index, isStatic) < 0) {
+                    report(ValidationIssue(ValidationIssue.Kind.INVALID_PARAMETER_INDEX, classData.name, member, "Parameter index $index does not exist"))
+                }
+
+                val name = paramData.name ?: continue
+                if (!(MapParameterAction.parameterRegex matches name)) {
+                    report(ValidationIssue(ValidationIssue.Kind.INVALID_PARAMETER_NAME, classData.name, member, "Parameter $index has invalid name '$name'"))
+                }
+                if (!seenNames.add(name)) {
+                    report(ValidationIssue(ValidationIssue.Kind.DUPLICATE_PARAMETER_NAME, classData.name, member, "Parameter name '$name' is used more than once"))
+                }
+            }
+        }
+    }
+
+    private class ClassMembers : ClassVisitor(Opcodes.ASM9) {
+        val fields = mutableMapOf<String, String>()
+        val methods = mutableMapOf<String, Int>()
+
+        override fun visitField(access: Int, name: String, descriptor: String, signature: String?, value: Any?): FieldVisitor? {
+            fields[name] = descriptor
+            return null
+        }
+
+        override fun visitMethod(access: Int, name: String, descriptor: String, signature: String?, exceptions: Array<out String>?): MethodVisitor? {
+            methods[name + descriptor] = access
+            return null
+        }
+
+        companion object {
+            fun read(reader: ClassReader) = ClassMembers().also { reader.accept(it, ClassReader.SKIP_CODE or ClassReader.SKIP_DEBUG or ClassReader.SKIP_FRAMES) }
+        }
+    }
+}
+
+data class ValidationIssue(val kind: Kind, val owner: String, val member: String?, val message: String) {
+    enum class Kind {
+        MISSING_CLASS,
+        MISSING_FIELD,
+        MISSING_METHOD,
+        INVALID_PARAMETER_INDEX,
+        INVALID_PARAMETER_NAME,
+        DUPLICATE_PARAMETER_NAME
+    }
+
+    override fun toString(): String = "[$kind] $owner${member?.let { ".$it" } ?: ""}: $message"
+}
@@ -0,0 +1,88 @@
+/*
+ * Scribe
+ * Copyright (C) 2023 ParchmentMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.parchmentmc.scribe.hints
+
+import com.intellij.openapi.application.impl.NonBlockingReadActionImpl
+import com.intellij.testFramework.PlatformTestUtil
+import com.intellij.testFramework.fixtures.LightJavaCodeInsightFixtureTestCase
+import org.parchmentmc.feather.mapping.MappingDataBuilder
+import org.parchmentmc.scribe.ParchmentMappings
+import org.parchmentmc.scribe.io.JsonMappingDataIO
+import org.parchmentmc.scribe.settings.ParchmentProjectSettings
+import kotlin.io.path.createTempFile
+import kotlin.io.path.deleteIfExists
+
+class ParchmentFoldingTest : LightJavaCodeInsightFixtureTestCase() {
+    private val mappingsFile = createTempFile("mappings", ".json")
+
+    override fun setUp() {
+        super.setUp()
+        val builder = MappingDataBuilder()
+        val foo = builder.createClass("net/minecraft/Foo")
+        repeat(METHOD_COUNT) { foo.createMethod("m$it", "(I)V").createParameter(1).setName("mapped") }
+        JsonMappingDataIO.INSTANCE.write(builder, mappingsFile)
+
+        ParchmentProjectSettings.getInstance(project).mappingsPath = mappingsFile.toString()
+        ParchmentMappings.getInstance(project).resetMappingContainer()
+    }
+
+    override fun tearDown() {
+        try {
+            ParchmentProjectSettings.getInstance(project).mappingsPath = ""
+            ParchmentMappings.getInstance(project).resetMappingContainer()
+            mappingsFile.deleteIfExists()
+        } catch (e: Throwable) {
+            addSuppressedException(e)
+        } finally {
+            super.tearDown()
+        }
+    }
+
+    fun testBackgroundFoldingCompletesEveryBatch() {
+        // One method per batch, so completing the file takes many chained batches
+        ParchmentFolding.setBackgroundBatchBudget(0, testRootDisposable)
+        val padding = "\n".repeat(LINES_PER_METHOD)
+        val methods = (0 until METHOD_COUNT).joinToString("") { "    void m$it(int p) {$padding        p++;\n    }\n" }
+        val file = myFixture.configureByText("Foo.java", "package net.minecraft;\n\nclass Foo {\n$methods}\n")
+        assertTrue(myFixture.editor.document.lineCount >= 1500)
+
+        val folding = ParchmentFolding()
+        val firstPass = folding.buildFoldRegions(file, myFixture.editor.document, false).size
+        assertTrue("Foreground pass should only fold the viewport", firstPass < METHOD_COUNT * 2)
+
+        var regions = firstPass
+        repeat(METHOD_COUNT * 4) {
+            if (regions == METHOD_COUNT * 2) return@repeat
+            NonBlockingReadActionImpl.waitForAsyncTaskCompletion()
+            PlatformTestUtil.dispatchAllInvocationEventsInIdeEventQueue()
+            regions = folding.buildFoldRegions(file, myFixture.editor.document, false).size
+        }
+        assertEquals(METHOD_COUNT * 2, regions)
+    }
+
+    private companion object {
+        const val METHOD_COUNT = 60
+        const val LINES_PER_METHOD = 30
+    }
+}
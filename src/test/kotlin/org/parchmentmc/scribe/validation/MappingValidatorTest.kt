@@ -0,0 +1,112 @@
+/*
+ * Scribe
+ * Copyright (C) 2023 ParchmentMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.parchmentmc.scribe.validation
+
+import org.junit.Assert.assertEquals
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import org.objectweb.asm.ClassWriter
+import org.objectweb.asm.Opcodes
+import org.parchmentmc.feather.mapping.MappingDataBuilder
+import java.nio.file.Path
+import java.util.Collections
+import java.util.zip.ZipEntry
+import java.util.zip.ZipOutputStream
+
+class MappingValidatorTest {
+    @get:Rule
+    val temp = TemporaryFolder()
+
+    @Test
+    fun validMappingsHaveNoIssues() {
+        val builder = MappingDataBuilder()
+        val method = builder.createClass(OWNER).createMethod("foo", "(IJ)V")
+        method.createParameter(1).setName("count")
+        method.createParameter(2).setName("time")
+
+        assertEquals(emptyList<ValidationIssue.Kind>(), validate(builder))
+    }
+
+    @Test
+    fun reportsParameterIndexOutsideOfDescriptor() {
+        val builder = MappingDataBuilder()
+        // Slot 3 is the second half of the long parameter
+        builder.createClass(OWNER).createMethod("foo", "(IJ)V").createParameter(3).setName("time")
+
+        assertEquals(listOf(ValidationIssue.Kind.INVALID_PARAMETER_INDEX), validate(builder))
+    }
+
+    @Test
+    fun reportsParameterNameNotMatchingRegex() {
+        val builder = MappingDataBuilder()
+        builder.createClass(OWNER).createMethod("foo", "(IJ)V").createParameter(1).setName("Count")
+
+        assertEquals(listOf(ValidationIssue.Kind.INVALID_PARAMETER_NAME), validate(builder))
+    }
+
+    @Test
+    fun reportsMissingMethod() {
+        val builder = MappingDataBuilder()
+        builder.createClass(OWNER).createMethod("bar", "(I)V").createParameter(1).setName("count")
+
+        assertEquals(listOf(ValidationIssue.Kind.MISSING_METHOD), validate(builder))
+    }
+
+    @Test
+    fun reportsDuplicateParameterName() {
+        val builder = MappingDataBuilder()
+        val method = builder.createClass(OWNER).createMethod("foo", "(IJ)V")
+        method.createParameter(1).setName("value")
+        method.createParameter(2).setName("value")
+
+        assertEquals(listOf(ValidationIssue.Kind.DUPLICATE_PARAMETER_NAME), validate(builder))
+    }
+
+    private fun validate(builder: MappingDataBuilder): List<ValidationIssue.Kind> {
+        val issues = Collections.synchronizedList(ArrayList<ValidationIssue>())
+        val count = MappingValidator(builder).validate(createJar()) { issues += it }
+        assertEquals(count, issues.size)
+        return issues.map { it.kind }
+    }
+
+    private fun createJar(): Path {
+        val writer = ClassWriter(0)
+        writer.visit(Opcodes.V17, Opcodes.ACC_PUBLIC, OWNER, null, "java/lang/Object", null)
+        writer.visitMethod(Opcodes.ACC_PUBLIC, "foo", "(IJ)V", null, null).visitEnd()
+        writer.visitEnd()
+
+        val jar = temp.newFile("minecraft.jar").toPath()
+        ZipOutputStream(jar.toFile().outputStream()).use { zip ->
+            zip.putNextEntry(ZipEntry("$OWNER.class"))
+            zip.write(writer.toByteArray())
+            zip.closeEntry()
+        }
+        return jar
+    }
+
+    private companion object {
+        const val OWNER = "net/minecraft/Foo"
+    }
+}